@@ -0,0 +1,59 @@
+package io.klerch.alexa.test.client;
+
+import io.klerch.alexa.test.request.AlexaIntentRequest;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envelope construction and serialization in AlexaClient.fire. The endpoint just hands back the payload
+ * length so that only the client's own work per request is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlexaClientBenchmark {
+    private AlexaClient client;
+    private AlexaSession session;
+    private int payloadLength;
+
+    @Setup
+    public void setUp() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        client = AlexaClient.create((request, payload) -> {
+            payloadLength = payload.length();
+            return Optional.empty();
+        }).build();
+        session = client.startSession();
+        // session attributes are applied from responses only
+        session.exploitResponse(new AlexaResponse(new AlexaIntentRequest(session, "GuessNumber"), "{}",
+                "{\"version\":\"1.0\",\"sessionAttributes\":{\"count\":3,\"intent\":\"GuessNumber\"},\"response\":{\"shouldEndSession\":false}}"));
+    }
+
+    @Benchmark
+    public int fireIntent() {
+        client.fire(new AlexaIntentRequest(session, "GuessNumber"));
+        return payloadLength;
+    }
+
+    @Benchmark
+    public int fireIntentWithSlots() {
+        client.fire(new AlexaIntentRequest(session, "GuessNumber").withSlot("number", 5).withSlot("name", "John"));
+        return payloadLength;
+    }
+
+    @Benchmark
+    public Optional<AlexaResponse> fireWithPayload() {
+        // the payload given by the caller skips serialization, this is the remaining overhead of fire
+        final AlexaRequest request = new AlexaIntentRequest(session, "GuessNumber");
+        return client.fire(request, "{}");
+    }
+}
@@ -0,0 +1,41 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interpretation of a compiled conversation script. Each call runs the whole conversation of
+ * benchmark-script.yml in a new session: a one-shot, five guesses in a loop and a stop, each
+ * followed by its assertions and goto conditions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlexaScriptBenchmark {
+    private AlexaClient client;
+    private AlexaScript script;
+
+    @Setup
+    public void setUp() throws IOException {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        try (final InputStream scriptStream = AlexaScriptBenchmark.class.getResourceAsStream("/benchmark-script.yml")) {
+            client = AlexaClient.create(scriptStream).build();
+        }
+        script = client.getScript();
+    }
+
+    @Benchmark
+    public AlexaSession execute() {
+        final AlexaSession session = client.startSession();
+        script.execute(session);
+        return session;
+    }
+}
@@ -0,0 +1,43 @@
+package io.klerch.alexa.test.client;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A trivial skill so that the benchmarks measure the tester rather than a skill. It counts the requests of a
+ * session in the count attribute, echoes the intent name and ends the session on AMAZON.StopIntent.
+ */
+public class BenchmarkSkill implements RequestStreamHandler {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    public void handleRequest(final InputStream input, final OutputStream output, final Context context) throws IOException {
+        final JsonNode request = mapper.readTree(input);
+        final String intentName = request.path("request").path("intent").path("name").asText("none");
+
+        final ObjectNode root = mapper.createObjectNode().put("version", "1.0");
+        root.putObject("sessionAttributes")
+                .put("count", request.path("session").path("attributes").path("count").asInt(0) + 1)
+                .put("intent", intentName);
+        final ObjectNode response = root.putObject("response");
+        response.putObject("outputSpeech")
+                .put("type", "SSML")
+                .put("ssml", "<speak>You said " + intentName + ".</speak>");
+        response.putObject("reprompt").putObject("outputSpeech")
+                .put("type", "PlainText")
+                .put("text", "What else?");
+        response.putObject("card")
+                .put("type", "Simple")
+                .put("title", intentName)
+                .put("content", request.path("request").path("intent").path("slots").toString());
+        response.put("shouldEndSession", "AMAZON.StopIntent".equals(intentName));
+        mapper.writeValue(output, root);
+    }
+}
@@ -0,0 +1,43 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import io.klerch.alexa.test.client.AlexaClient;
+import io.klerch.alexa.test.client.AlexaSession;
+import io.klerch.alexa.test.client.BenchmarkSkill;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full round trip of an intent request from the session over the RequestStreamHandler endpoint into
+ * a trivial skill and back, including the processing of the response. Run it with and without fast mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlexaRequestStreamHandlerEndpointBenchmark {
+    @Param({"false", "true"})
+    public boolean fastMode;
+
+    private AlexaSession session;
+
+    @Setup
+    public void setUp() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        final AlexaEndpoint endpoint = AlexaRequestStreamHandlerEndpoint.create(new BenchmarkSkill())
+                .withFastMode(fastMode)
+                .build();
+        session = AlexaClient.create(endpoint).build().startSession();
+    }
+
+    @Benchmark
+    public AlexaResponse roundTrip() {
+        // the skill keeps the session open and increments the count attribute with every request
+        return session.intent("GuessNumber", "number", 5);
+    }
+}
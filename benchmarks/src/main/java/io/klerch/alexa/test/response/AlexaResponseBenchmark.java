@@ -0,0 +1,78 @@
+package io.klerch.alexa.test.response;
+
+import io.klerch.alexa.test.client.AlexaClient;
+import io.klerch.alexa.test.client.AlexaSession;
+import io.klerch.alexa.test.client.BenchmarkSkill;
+import io.klerch.alexa.test.client.endpoint.AlexaEndpoint;
+import io.klerch.alexa.test.client.endpoint.AlexaRequestStreamHandlerEndpoint;
+import io.klerch.alexa.test.request.AlexaRequest;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of an AlexaResponse from a skill's payload and the JSONPath evaluation of assertions and
+ * references against it. The evaluating benchmarks create a new response per call, as each request
+ * of a conversation does, so that the parsing of the payload is part of the measurement.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AlexaResponseBenchmark {
+    private AlexaRequest request;
+    private String requestPayload;
+    private byte[] responsePayload;
+    private AlexaAssertion assertion;
+    private AlexaReference reference;
+
+    @Setup
+    public void setUp() {
+        Logger.getRootLogger().setLevel(Level.WARN);
+        final AlexaEndpoint skill = AlexaRequestStreamHandlerEndpoint.create(new BenchmarkSkill()).build();
+        // keep what went over the wire for the last request
+        final AlexaEndpoint recorder = (request, payload) -> {
+            requestPayload = payload;
+            return skill.fire(request, payload);
+        };
+        final AlexaSession session = AlexaClient.create(recorder).build().startSession();
+        final AlexaResponse response = session.intent("GuessNumber", "number", 5);
+        request = response.getRequest();
+        responsePayload = response.getResponsePayload().getBytes(StandardCharsets.UTF_8);
+        assertion = AlexaAssertion.create("response.outputSpeech.ssml =~ /.*GuessNumber.*/i");
+        reference = AlexaReference.create("$.sessionAttributes.count");
+    }
+
+    @Benchmark
+    public AlexaResponse construct() {
+        return new AlexaResponse(request, requestPayload, responsePayload);
+    }
+
+    @Benchmark
+    public boolean is() {
+        return new AlexaResponse(request, requestPayload, responsePayload).is(assertion);
+    }
+
+    @Benchmark
+    public boolean isExpression() {
+        // the expression is compiled once and then taken from the cache
+        return new AlexaResponse(request, requestPayload, responsePayload).is("response.shouldEndSession == false");
+    }
+
+    @Benchmark
+    public Optional<String> get() {
+        return new AlexaResponse(request, requestPayload, responsePayload).get(reference);
+    }
+
+    @Benchmark
+    public Optional<String> getFromRequest() {
+        // falls back to the request payload as the response does not contain the intent
+        return new AlexaResponse(request, requestPayload, responsePayload).get("$.request.intent.name");
+    }
+}
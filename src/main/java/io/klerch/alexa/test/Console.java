@@ -1,29 +1,91 @@
 package io.klerch.alexa.test;
 
-import io.klerch.alexa.test.client.AlexaClient;
+import io.klerch.alexa.test.client.AlexaSuiteResult;
+import io.klerch.alexa.test.client.AlexaSuiteRunner;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.log4j.Logger;
 
 import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Console {
     private final static String errNoFilePath = "[ERROR] Missing file path. Use -f followed by the file path of your YAML script file.";
+    private final static String GLOB_CHARACTERS = "*?[{";
     private final static Logger log = Logger.getLogger(Console.class);
 
     public static void main(final String[] args){
-        readFile(args);
+        final AlexaSuiteResult result = runScripts(args);
+        if (!result.isPassed()) {
+            System.exit(1);
+        }
     }
 
-    private static void readFile(final String[] args) {
+    /**
+     * Runs all scripts given with -f. A script path can point to a single file, a directory which is
+     * searched for *.yml and *.yaml files or a glob pattern like scripts/**.yml.
+     * Use -p followed by a number to set how many scripts run in parallel (defaults to the number of cores).
+     * @param args command line arguments
+     * @return results of all scripts
+     */
+    static AlexaSuiteResult runScripts(final String[] args) {
         Validate.notEmpty(args, errNoFilePath);
         Validate.isTrue(args.length > 1, errNoFilePath);
         Validate.isTrue(args[0].equalsIgnoreCase("-f") || args[0].equalsIgnoreCase("-file"), "Missing -f or -file parameter. Use -f followed by the file path of your YAML script file." );
 
+        final AlexaSuiteRunner.AlexaSuiteRunnerBuilder suite = AlexaSuiteRunner.create();
+        final Set<Path> scripts = new LinkedHashSet<>();
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg.equalsIgnoreCase("-p") || arg.equalsIgnoreCase("-parallelism") || arg.equalsIgnoreCase("--parallelism")) {
+                Validate.isTrue(i + 1 < args.length && NumberUtils.isDigits(args[i + 1]), "Use -p followed by the number of scripts to run in parallel.");
+                suite.withParallelism(Integer.parseInt(args[++i]));
+            } else if (!arg.equalsIgnoreCase("-f") && !arg.equalsIgnoreCase("-file")) {
+                scripts.addAll(findScripts(arg));
+            }
+        }
+        Validate.notEmpty(scripts, "[ERROR] No YAML script files found in %s.", Arrays.toString(args));
+        scripts.forEach(suite::withScript);
+
+        final AlexaSuiteResult result = suite.build().run();
+        log.info(String.format("%n%s", result.getReport()));
+        return result;
+    }
+
+    private static List<Path> findScripts(final String location) {
+        final int globIndex = StringUtils.indexOfAny(location, GLOB_CHARACTERS);
         try {
-            AlexaClient.create(args[1]).build().startScript();
+            if (globIndex >= 0) {
+                // walk the directory in front of the first glob character and match everything below against the pattern
+                final int separatorIndex = location.lastIndexOf('/', globIndex);
+                final Path baseDir = Paths.get(separatorIndex >= 0 ? location.substring(0, separatorIndex + 1) : ".");
+                final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + location);
+                return walk(baseDir, path -> matcher.matches(separatorIndex >= 0 ? path : baseDir.relativize(path)));
+            }
+            final Path path = Paths.get(location);
+            if (Files.isDirectory(path)) {
+                return walk(path, Console::isScript);
+            }
+            Validate.isTrue(Files.isRegularFile(path), "[ERROR] YAML script file %s does not exist.", location);
+            return Collections.singletonList(path);
         } catch (final IOException e) {
-            log.error(e);
-            e.printStackTrace();
+            throw new UncheckedIOException("[ERROR] Could not read YAML script files from " + location, e);
         }
     }
+
+    private static List<Path> walk(final Path dir, final Predicate<Path> filter) throws IOException {
+        try (final Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isScript(final Path path) {
+        final String fileName = path.getFileName().toString().toLowerCase();
+        return fileName.endsWith(".yml") || fileName.endsWith(".yaml");
+    }
 }
@@ -5,11 +5,15 @@ import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.util.IOUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.klerch.alexa.test.client.AlexaClient;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.klerch.alexa.test.client.AlexaSuiteResult;
+import io.klerch.alexa.test.client.AlexaSuiteRunner;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.log4j.Logger;
@@ -18,14 +22,24 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Lambda implements RequestStreamHandler {
     private final static String S3_BUCKET_PROPERTY = "s3Bucket";
     private final static String S3_KEY_PROPERTY = "s3Key";
     private final static String S3_REGION_PROPERTY = "s3Region";
+    private final static String PARALLELISM_PROPERTY = "parallelism";
 
     private final static Logger log = Logger.getLogger(Lambda.class);
     private final ObjectMapper om = new ObjectMapper();
@@ -43,24 +57,127 @@ public class Lambda implements RequestStreamHandler {
         final String region = Optional.ofNullable(root.get(S3_REGION_PROPERTY)).map(JsonNode::textValue).filter(StringUtils::isNotBlank)
                 .orElse(System.getenv(S3_REGION_PROPERTY));
 
-        final AmazonS3 s3client = StringUtils.isNotBlank(region) ? AmazonS3ClientBuilder.standard().withRegion(region).build() : AmazonS3ClientBuilder.defaultClient();
+        final AmazonS3 s3client = createS3Client(region);
 
         final ListObjectsRequest listRequest = new ListObjectsRequest().withBucketName(bucket).withPrefix(Optional.ofNullable(key).map(k -> k + (k.endsWith("/") ? "" : "/")).orElse(""));
 
         log.info("[INFO] Reading out *.yml conversation script files in folder '" + listRequest.getPrefix() + "' in bucket '" + listRequest.getBucketName() + "'");
 
-        final List<S3ObjectSummary> conversationScripts = s3client.listObjects(listRequest).getObjectSummaries().stream()
-                .filter(os -> os.getKey().toLowerCase().endsWith(".yml")).collect(Collectors.toList());
+        final List<S3ObjectSummary> conversationScripts = new ArrayList<>();
+        ObjectListing listing = s3client.listObjects(listRequest);
+        conversationScripts.addAll(listing.getObjectSummaries());
+        // follow up with the next pages as S3 returns at most 1000 objects per call
+        while (listing.isTruncated()) {
+            listing = s3client.listNextBatchOfObjects(listing);
+            conversationScripts.addAll(listing.getObjectSummaries());
+        }
+        conversationScripts.removeIf(os -> !os.getKey().toLowerCase().endsWith(".yml"));
 
         log.info("[INFO] Found " + conversationScripts.size() + " conversation script files in bucket '" + bucket + "'");
 
-        for (final S3ObjectSummary conversationScript : conversationScripts) {
-            log.info("[INFO] Load conversation script file " + conversationScript.getKey() + " from S3 bucket " + bucket);
+        final int parallelism = Optional.ofNullable(root.get(PARALLELISM_PROPERTY)).map(JsonNode::asText).filter(StringUtils::isNotBlank)
+                .map(Optional::of).orElse(Optional.ofNullable(System.getenv(PARALLELISM_PROPERTY)))
+                .map(Integer::valueOf).orElse(Runtime.getRuntime().availableProcessors());
+        final AlexaSuiteRunner.AlexaSuiteRunnerBuilder suite = AlexaSuiteRunner.create().withParallelism(parallelism);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService downloader = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-s3-download-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // download in the order of execution so the next scripts are ready once a worker picks them up
+            final ScriptPrefetcher prefetcher = new ScriptPrefetcher(s3client, bucket, conversationScripts, 2 * parallelism, downloader);
+            for (int i = 0; i < conversationScripts.size(); i++) {
+                final int index = i;
+                suite.withScript(conversationScripts.get(index).getKey(), () -> prefetcher.open(index));
+            }
+            final AlexaSuiteResult result = suite.build().run();
+            log.info(String.format("%n%s", result.getReport()));
+            om.writeValue(output, toJson(result));
+        } finally {
+            downloader.shutdownNow();
+        }
+    }
+
+    AmazonS3 createS3Client(final String region) {
+        return StringUtils.isNotBlank(region) ? AmazonS3ClientBuilder.standard().withRegion(region).build() : AmazonS3ClientBuilder.defaultClient();
+    }
 
-            AlexaClient.create(s3client.getObject(bucket, conversationScript.getKey()).getObjectContent())
-                    .build()
-                    .startScript();
+    private static byte[] download(final AmazonS3 s3client, final String bucket, final String key) {
+        log.info("[INFO] Load conversation script file " + key + " from S3 bucket " + bucket);
+        try (final InputStream content = s3client.getObject(bucket, key).getObjectContent()) {
+            return IOUtils.toByteArray(content);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("[ERROR] Could not load conversation script file " + key + " from S3 bucket " + bucket, e);
         }
-        output.write("{ \"OK\" }".getBytes());
+    }
+
+    private static byte[] join(final CompletableFuture<byte[]> content) throws IOException {
+        try {
+            return content.join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException ? ((UncheckedIOException)e.getCause()).getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Downloads scripts a limited number ahead of the one started last, so not all of them are held in memory at once.
+     */
+    private static class ScriptPrefetcher {
+        private final AmazonS3 s3client;
+        private final String bucket;
+        private final List<S3ObjectSummary> scripts;
+        private final int window;
+        private final Executor downloader;
+        // guarded by this
+        private final Map<Integer, CompletableFuture<byte[]>> downloads = new HashMap<>();
+        private int submitted;
+
+        private ScriptPrefetcher(final AmazonS3 s3client, final String bucket, final List<S3ObjectSummary> scripts, final int window, final Executor downloader) {
+            this.s3client = s3client;
+            this.bucket = bucket;
+            this.scripts = scripts;
+            this.window = window;
+            this.downloader = downloader;
+            prefetch(window - 1);
+        }
+
+        private InputStream open(final int index) throws IOException {
+            final CompletableFuture<byte[]> content;
+            synchronized (this) {
+                prefetch(index + window);
+                content = downloads.remove(index);
+            }
+            return new ByteArrayInputStream(join(content));
+        }
+
+        private synchronized void prefetch(final int lastIndex) {
+            for (; submitted <= Math.min(lastIndex, scripts.size() - 1); submitted++) {
+                final String key = scripts.get(submitted).getKey();
+                downloads.put(submitted, CompletableFuture.supplyAsync(() -> download(s3client, bucket, key), downloader));
+            }
+        }
+    }
+
+    private ObjectNode toJson(final AlexaSuiteResult result) {
+        final ObjectNode root = om.createObjectNode()
+                .put("passed", result.isPassed())
+                .put("scripts", result.getScriptCount())
+                .put("passedCount", result.getPassedCount())
+                .put("failedCount", result.getFailedCount())
+                .put("durationMillis", result.getDurationMillis());
+        final ArrayNode results = root.putArray("results");
+        result.getResults().forEach(r -> {
+            final ObjectNode script = results.addObject()
+                    .put("script", r.getName())
+                    .put("passed", r.isPassed())
+                    .put("durationMillis", r.getDurationMillis());
+            if (!r.isPassed()) {
+                script.put("failure", r.getFailure().getMessage());
+            }
+        });
+        return root;
     }
 }
@@ -0,0 +1,242 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.helpers.AppenderAttachableImpl;
+import org.apache.log4j.spi.AppenderAttachable;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands log events over to the appenders attached to it on a background thread, so threads firing requests
+ * neither wait for the console nor contend for the locks of its appenders. Events are kept in a bounded ring
+ * buffer. If the buffer is full, events below WARN are dropped and counted whereas warnings and errors wait
+ * for space, so failures are never lost.
+ */
+public class AlexaAsyncAppender extends AppenderSkeleton implements AppenderAttachable {
+    private final static Logger log = Logger.getLogger(AlexaAsyncAppender.class);
+    public final static int DEFAULT_BUFFER_SIZE = 8192;
+    private final static int BATCH_SIZE = 256;
+    private final AppenderAttachableImpl appenders = new AppenderAttachableImpl();
+    private final int bufferSize;
+    private final BlockingQueue<LoggingEvent> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread dispatcher;
+    private volatile boolean stopped;
+
+    public AlexaAsyncAppender() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public AlexaAsyncAppender(final int bufferSize) {
+        Validate.isTrue(bufferSize > 0, "Buffer size of async appender must be greater than zero.");
+        this.bufferSize = bufferSize;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.dispatcher = new Thread(this::dispatch, "alexa-async-appender");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Moves the appenders of the root logger behind an async appender unless this was done before.
+     * The appender is closed when the JVM shuts down, so buffered events are still written. As the root
+     * logger is shared by the whole process the first call wins. Calling it again with another buffer
+     * size is rejected.
+     * @param bufferSize number of events the buffer holds
+     * @return the async appender of the root logger
+     */
+    public static synchronized AlexaAsyncAppender install(final int bufferSize) {
+        final Logger root = Logger.getRootLogger();
+        final List<Appender> existing = new ArrayList<>();
+        for (final Enumeration<?> e = root.getAllAppenders(); e.hasMoreElements(); ) {
+            final Appender appender = (Appender)e.nextElement();
+            if (appender instanceof AlexaAsyncAppender) {
+                final AlexaAsyncAppender async = (AlexaAsyncAppender)appender;
+                if (async.bufferSize != bufferSize) {
+                    final String msg = String.format("Log events are already written asynchronously with a buffer of %1$s events. It cannot be changed to %2$s events.", async.bufferSize, bufferSize);
+                    log.error(String.format("[ERROR] %s", msg));
+                    throw new RuntimeException(msg);
+                }
+                return async;
+            }
+            existing.add(appender);
+        }
+        final AlexaAsyncAppender async = new AlexaAsyncAppender(bufferSize);
+        async.setName("alexa-async");
+        existing.forEach(async::addAppender);
+        root.addAppender(async);
+        existing.forEach(root::removeAppender);
+        Runtime.getRuntime().addShutdownHook(new Thread(async::close, "alexa-async-appender-shutdown"));
+        log.info(String.format("[INFO] Log events are written asynchronously with a buffer of %s events.", bufferSize));
+        return async;
+    }
+
+    /**
+     * Number of events dropped as the buffer was full.
+     * @return dropped events
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Unlike the one of AppenderSkeleton this method is not synchronized, as events are merely put in the buffer.
+     * @param event the event
+     */
+    @Override
+    public void doAppend(final LoggingEvent event) {
+        if (stopped || !isAsSevereAsThreshold(event.getLevel())) {
+            return;
+        }
+        for (Filter filter = getFirstFilter(); filter != null; filter = filter.getNext()) {
+            final int decision = filter.decide(event);
+            if (decision == Filter.DENY) {
+                return;
+            }
+            if (decision == Filter.ACCEPT) {
+                break;
+            }
+        }
+        append(event);
+    }
+
+    @Override
+    protected void append(final LoggingEvent event) {
+        // capture state of the calling thread before the event is handed over
+        event.getNDC();
+        event.getThreadName();
+        event.getMDCCopy();
+        event.getRenderedMessage();
+        event.getThrowableStrRep();
+
+        if (event.getLevel().isGreaterOrEqual(Level.WARN)) {
+            try {
+                while (!buffer.offer(event, 100, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        return;
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (!buffer.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void dispatch() {
+        final List<LoggingEvent> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (!stopped || !buffer.isEmpty()) {
+                final LoggingEvent event = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    continue;
+                }
+                batch.add(event);
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                synchronized (appenders) {
+                    batch.forEach(appenders::appendLoopOnAppenders);
+                }
+                batch.clear();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes all buffered events and closes the attached appenders.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stopped = true;
+        }
+        try {
+            dispatcher.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (appenders) {
+            if (dropped.get() > 0) {
+                appenders.appendLoopOnAppenders(new LoggingEvent(AlexaAsyncAppender.class.getName(), log, Level.WARN,
+                        String.format("[WARN] Dropped %s log events as the buffer was full.", dropped.get()), null));
+            }
+            for (final Enumeration<?> e = appenders.getAllAppenders(); e != null && e.hasMoreElements(); ) {
+                ((Appender)e.nextElement()).close();
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+
+    @Override
+    public void addAppender(final Appender appender) {
+        synchronized (appenders) {
+            appenders.addAppender(appender);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Enumeration getAllAppenders() {
+        synchronized (appenders) {
+            final Enumeration<?> e = appenders.getAllAppenders();
+            return e != null ? Collections.enumeration(Collections.list(e)) : Collections.emptyEnumeration();
+        }
+    }
+
+    @Override
+    public Appender getAppender(final String name) {
+        synchronized (appenders) {
+            return appenders.getAppender(name);
+        }
+    }
+
+    @Override
+    public boolean isAttached(final Appender appender) {
+        synchronized (appenders) {
+            return appenders.isAttached(appender);
+        }
+    }
+
+    @Override
+    public void removeAllAppenders() {
+        synchronized (appenders) {
+            appenders.removeAllAppenders();
+        }
+    }
+
+    @Override
+    public void removeAppender(final Appender appender) {
+        synchronized (appenders) {
+            appenders.removeAppender(appender);
+        }
+    }
+
+    @Override
+    public void removeAppender(final String name) {
+        synchronized (appenders) {
+            appenders.removeAppender(name);
+        }
+    }
+}
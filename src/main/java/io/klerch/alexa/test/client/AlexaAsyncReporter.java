@@ -0,0 +1,186 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base of reporters writing events to a file. Events are put in a bounded queue and written by a background
+ * thread, so the threads running conversations never wait for the disk and the number of events kept in
+ * memory is limited by the size of the queue. If the writer cannot keep up and the queue is full, passed events are
+ * dropped and counted unless the reporter is set to wait for the writer to catch up. Failed requests and assertions
+ * are never dropped, their reporters wait for space in the queue instead. Events reported while
+ * the reporter is closed are either written before the report completes or ignored, never left in the queue.
+ */
+public abstract class AlexaAsyncReporter implements AlexaReporter {
+    private final static Logger log = Logger.getLogger(AlexaAsyncReporter.class);
+    public final static int DEFAULT_QUEUE_SIZE = 10000;
+    private final static int BATCH_SIZE = 256;
+    // tells the writer all events before were reported
+    private final static AlexaReportEvent END = new AlexaReportEvent(null, null, null, 0, 0, null, null, null, null, false);
+    private final BlockingQueue<AlexaReportEvent> queue;
+    private final boolean dropWhenFull;
+    private final Thread writer;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // reporting threads share the lock, closing takes it exclusively so no event is queued after the end
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    protected AlexaAsyncReporter(final String name, final int queueSize, final boolean dropWhenFull) {
+        Validate.isTrue(queueSize > 0, "Queue size of reporter must be greater than zero.");
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.dropWhenFull = dropWhenFull;
+        this.writer = new Thread(this::drain, "alexa-reporter-" + name);
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Writes an event. Called by the background thread only.
+     * @param event the event
+     * @throws IOException if the event could not be written
+     */
+    protected abstract void write(final AlexaReportEvent event) throws IOException;
+
+    /**
+     * Called by the background thread whenever the queue ran empty.
+     * @throws IOException if the events could not be flushed
+     */
+    protected abstract void flush() throws IOException;
+
+    /**
+     * Completes the report once all events are written. Called by the background thread only.
+     * @throws IOException if the report could not be completed
+     */
+    protected abstract void finish() throws IOException;
+
+    @Override
+    public void report(final AlexaReportEvent event) {
+        if (closed || failed) {
+            return;
+        }
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            start();
+            if (dropWhenFull && event.isPassed()) {
+                if (!queue.offer(event)) {
+                    dropped.incrementAndGet();
+                }
+                return;
+            }
+            // the writer keeps taking events until the end, also once writing failed, so there will be space
+            queue.put(event);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of events written so far.
+     * @return written events
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Number of passed events dropped as the queue was full.
+     * @return dropped events
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        start();
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dropped.get() > 0) {
+            log.warn(String.format("[WARN] %1$s dropped %2$s passed events as the queue was full.", writer.getName(), dropped.get()));
+        }
+    }
+
+    private void start() {
+        // the writer starts with the first event, once subclasses are fully constructed
+        if (!started.get() && started.compareAndSet(false, true)) {
+            writer.start();
+        }
+    }
+
+    private void drain() {
+        final List<AlexaReportEvent> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (final AlexaReportEvent event : batch) {
+                    if (event == END) {
+                        attempt(() -> {
+                            flush();
+                            finish();
+                        });
+                        return;
+                    }
+                    // once writing failed events are still taken, so no one waits for space in the queue
+                    attempt(() -> {
+                        write(event);
+                        written.incrementAndGet();
+                    });
+                }
+                batch.clear();
+                if (queue.isEmpty()) {
+                    attempt(this::flush);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface WriteAction {
+        void run() throws IOException;
+    }
+
+    private void attempt(final WriteAction action) {
+        if (failed) {
+            return;
+        }
+        try {
+            action.run();
+        } catch (final IOException e) {
+            failed = true;
+            log.error(String.format("[ERROR] %1$s stopped as it could not write the report. %2$s", writer.getName(), e.getMessage()));
+        }
+    }
+}
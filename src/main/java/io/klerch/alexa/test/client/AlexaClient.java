@@ -1,6 +1,5 @@
 package io.klerch.alexa.test.client;
 
-import com.amazon.speech.json.SpeechletRequestEnvelope;
 import com.amazon.speech.json.SpeechletRequestModule;
 import com.amazon.speech.speechlet.*;
 import com.amazon.speech.speechlet.interfaces.audioplayer.AudioPlayerInterface;
@@ -8,12 +7,16 @@ import com.amazon.speech.speechlet.interfaces.display.DisplayInterface;
 import com.amazonaws.util.StringUtils;
 import com.esotericsoftware.yamlbeans.YamlException;
 import com.esotericsoftware.yamlbeans.YamlReader;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import io.klerch.alexa.test.client.endpoint.AlexaApiEndpoint;
+import io.klerch.alexa.test.client.endpoint.AlexaCachingEndpoint;
 import io.klerch.alexa.test.client.endpoint.AlexaEndpoint;
 import io.klerch.alexa.test.client.endpoint.AlexaEndpointFactory;
+import io.klerch.alexa.test.client.endpoint.AlexaRecordingEndpoint;
+import io.klerch.alexa.test.client.endpoint.AlexaResilientEndpoint;
 import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.request.AlexaSessionStartedRequest;
 import io.klerch.alexa.test.response.AlexaResponse;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -25,6 +28,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static io.klerch.alexa.test.client.AlexaClient.API_ENDPOINT.EU;
 import static io.klerch.alexa.test.client.AlexaClient.API_ENDPOINT.NA;
@@ -34,26 +41,36 @@ public class AlexaClient {
     private final static ObjectMapper mapper = new ObjectMapper();
     public static final String VERSION = "1.0";
     final AlexaEndpoint endpoint;
-    private AlexaResponse lastResponse;
     final String apiEndpoint;
     private final long millisFromCurrentDate;
-    private long lastExecutionTimeMillis;
     private final Locale locale;
     final Device device;
     private final Application application;
     private final User user;
     private final Optional<String> debugFlagSessionAttributeName;
-    private final Object yLaunch;
-
-    private static Map<API_ENDPOINT, String> apiEndpoints = new HashMap<>();
+    private final AlexaScript script;
+    private final AlexaLoadProfile loadProfile;
+    private final AlexaCombinationRunner.AlexaCombinationRunnerBuilder combinationRunner;
+    private final AlexaScriptExplorer.AlexaScriptExplorerBuilder explorer;
+    private final AlexaLatencyRecorder latencyRecorder = new AlexaLatencyRecorder();
+    private final List<AlexaReporter> reporters;
+    private final AlexaMetrics metrics = AlexaMetrics.getInstance();
+    private final String endpointTimer;
+    private final AlexaEnvelopeSerializer envelopeSerializer;
+    // only kept for the deprecated getters of the last response
+    private volatile AlexaSession lastSession;
+
+    private static final Map<API_ENDPOINT, String> apiEndpoints;
 
     static {
         mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
         mapper.enable(SerializationFeature.WRITE_NULL_MAP_VALUES);
         mapper.registerModule(new SpeechletRequestModule());
 
-        apiEndpoints.putIfAbsent(NA, "https://api.amazonalexa.com/");
-        apiEndpoints.putIfAbsent(EU, "https://api.eu.amazonalexa.com/");
+        final Map<API_ENDPOINT, String> endpoints = new EnumMap<>(API_ENDPOINT.class);
+        endpoints.put(NA, "https://api.amazonalexa.com/");
+        endpoints.put(EU, "https://api.eu.amazonalexa.com/");
+        apiEndpoints = Collections.unmodifiableMap(endpoints);
     }
 
     public enum API_ENDPOINT {
@@ -69,21 +86,77 @@ public class AlexaClient {
         this.device = builder.device;
         this.debugFlagSessionAttributeName = StringUtils.isNullOrEmpty(builder.debugFlagSessionAttributeName) ? Optional.empty() : Optional.of(builder.debugFlagSessionAttributeName);
         this.endpoint = builder.endpoint;
-        this.yLaunch = builder.yLaunch;
+        this.endpointTimer = AlexaMetrics.ENDPOINTS + "." + endpoint.getClass().getSimpleName();
+        this.script = builder.script;
+        this.loadProfile = builder.loadProfile;
+        this.combinationRunner = builder.combinationRunner;
+        this.explorer = builder.explorer;
+        this.reporters = Collections.unmodifiableList(new ArrayList<>(builder.reporters));
+        try {
+            this.envelopeSerializer = new AlexaEnvelopeSerializer(mapper, this);
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not render request envelope. " + e.getMessage(), e);
+        }
     }
 
+    /**
+     * The response received for the most recent request fired by this client.
+     * @deprecated A client serves many sessions at once. Use {@link AlexaSession#getLastResponse()} of the session.
+     * @return last response of the session which most recently completed a request, null if there is none
+     */
+    @Deprecated
     public AlexaResponse getLastResponse() {
-        return this.lastResponse;
+        final AlexaSession session = lastSession;
+        return session != null ? session.getLastResponse() : null;
     }
 
+    /**
+     * The execution time of the most recent request fired by this client.
+     * @deprecated A client serves many sessions at once. Use {@link AlexaSession#getLastExecutionMillis()} of the session.
+     * @return milliseconds of the session which most recently completed a request, 0 if there is none
+     */
+    @Deprecated
     public long getLastExecutionMillis() {
-        return lastExecutionTimeMillis;
+        final AlexaSession session = lastSession;
+        return session != null ? session.getLastExecutionMillis() : 0;
     }
 
     public AlexaEndpoint getEndpoint() {
         return this.endpoint;
     }
 
+    /**
+     * The recorder holds latency histograms of all requests fired by this client.
+     * @return latency recorder
+     */
+    public AlexaLatencyRecorder getLatencyRecorder() {
+        return this.latencyRecorder;
+    }
+
+    /**
+     * The reporters receiving an event for each request fired by this client and each assertion validated.
+     * @return reporters
+     */
+    public List<AlexaReporter> getReporters() {
+        return this.reporters;
+    }
+
+    /**
+     * Hands an event over to all reporters of this client.
+     * @param event the event
+     */
+    public void report(final AlexaReportEvent event) {
+        reporters.forEach(reporter -> reporter.report(event));
+    }
+
+    /**
+     * The compiled conversation script in case this client was created from a YAML script.
+     * @return compiled script, null if there is none
+     */
+    public AlexaScript getScript() {
+        return this.script;
+    }
+
     public static String generateUserId() {
         return String.format("amzn1.ask.account.%s", RandomStringUtils.randomAlphanumeric(207).toUpperCase());
     }
@@ -105,32 +178,85 @@ public class AlexaClient {
     }
 
     Optional<AlexaResponse> fire(final AlexaRequest request) {
-        final SpeechletRequestEnvelope envelope = request.getSession().envelope(request);
-        String payload = null;
+        return fire(request, serialize(request));
+    }
+
+    Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+        // ensure payload set
+        Validate.notBlank(payload, "[ERROR] Invalid speechlet request contents. Must not be null or empty.");
+        // delegate execution to child implementation
+        final long startNanos = System.nanoTime();
+        final Optional<AlexaResponse> response;
+        try {
+            response = endpoint.fire(request, payload);
+        } catch (final RuntimeException e) {
+            recordError(request, startNanos, e);
+            throw e;
+        }
+        return complete(request, response, startNanos);
+    }
+
+    CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request) {
+        return fireAsync(request, serialize(request));
+    }
+
+    CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+        // ensure payload set
+        Validate.notBlank(payload, "[ERROR] Invalid speechlet request contents. Must not be null or empty.");
+        // delegate execution to child implementation and process the response once it arrives
+        final long startNanos = System.nanoTime();
+        return endpoint.fireAsync(request, payload)
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        recordError(request, startNanos, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    }
+                })
+                .thenApply(response -> complete(request, response, startNanos));
+    }
+
+    private String serialize(final AlexaRequest request) {
+        final AlexaSession session = request.getSession();
         try {
-            payload = mapper.writeValueAsString(envelope);
-        } catch (final JsonProcessingException e) {
+            // write from the pre-rendered envelope parts unless the session deviates from this client's setup
+            final Session state = session.session;
+            if (envelopeSerializer.supports(state)) {
+                session.verifyReadyFor(request);
+                return envelopeSerializer.serialize(state, request);
+            }
+            return mapper.writeValueAsString(session.envelope(request));
+        } catch (final IOException e) {
             final String msg = String.format("Invalid request format. %s", e.getMessage());
             log.error(String.format("→ [ERROR] %s", msg));
             throw new RuntimeException(msg, e);
         }
-        return fire(request, payload);
     }
 
-    Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
-        // ensure payload set
-        Validate.notBlank(payload, "[ERROR] Invalid speechlet request contents. Must not be null or empty.");
-        // delegate execution to child implementation
-        final long startTimestamp = System.currentTimeMillis();
-        final Optional<AlexaResponse> response = endpoint.fire(request, payload);
-        lastExecutionTimeMillis = System.currentTimeMillis() - startTimestamp;
-        response.ifPresent(r -> {
-            request.getSession().exploitResponse(r);
-            lastResponse = r;
-        });
+    private Optional<AlexaResponse> complete(final AlexaRequest request, final Optional<AlexaResponse> response, final long startNanos) {
+        // failed attempts and backoffs before a retry succeeded are not latency of the skill
+        final long latencyNanos = System.nanoTime() - startNanos - request.getRetryNanos();
+        // per-call state is kept by the session so that one client can serve many sessions concurrently
+        final AlexaSession session = request.getSession();
+        session.lastExecutionTimeMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        latencyRecorder.record(request, latencyNanos);
+        metrics.increment(AlexaMetrics.REQUESTS);
+        metrics.record(AlexaMetrics.REQUESTS + "." + AlexaLatencyRecorder.getKey(request), latencyNanos);
+        metrics.record(endpointTimer, latencyNanos);
+        response.ifPresent(session::exploitResponse);
+        lastSession = session;
+        if (!reporters.isEmpty()) {
+            report(AlexaReportEvent.request(request, response.orElse(null), latencyNanos, null));
+        }
         return response;
     }
 
+    private void recordError(final AlexaRequest request, final long startNanos, final Throwable failure) {
+        metrics.increment(AlexaMetrics.ERRORS);
+        metrics.increment(AlexaMetrics.ERRORS + "." + AlexaLatencyRecorder.getKey(request));
+        if (!reporters.isEmpty()) {
+            report(AlexaReportEvent.request(request, null, System.nanoTime() - startNanos, failure));
+        }
+    }
+
     public static AlexaClientBuilder create(final AlexaEndpoint endpoint) {
         return new AlexaClientBuilder(endpoint);
     }
@@ -156,14 +282,114 @@ public class AlexaClient {
         return new AlexaSession(this);
     }
 
+    AlexaSession startSession(final boolean quiet) {
+        return new AlexaSession(this, quiet);
+    }
+
+    /**
+     * Starts a new session without blocking the caller while the session start request is fired.
+     * @return future completing with the new session
+     */
+    public CompletableFuture<AlexaSession> startSessionAsync() {
+        final AlexaSession session = new AlexaSession(this, AlexaSession.createSession(this));
+        return fireAsync(new AlexaSessionStartedRequest(session)).thenApply(response -> session);
+    }
+
     /**
      * Starts the script that was loaded from a YAML file referenced when AlexaClient was created.
      * If you created this client without giving it an file reference startScript does
      * nothing as there's no script to read from. In this case use startSession
+     * If the script contains a load configuration the conversation is run in many sessions
+     * at the rate given by the load profile. If the script contains a combinations configuration the intent
+     * is fired with all of its slot combinations before the conversation starts. If it contains an explore
+     * configuration all branches of the conversation are explored rather than following the skill's responses only.
+     * Reporters and recording endpoints of this client are closed once the script has finished.
      */
     public void startScript() {
-        Validate.notNull(yLaunch, "[ERROR] Could not find Launch node. Add this node to the top level of your YAML script and use it as an entry point for your conversation path.");
-        startSession().executeSession(yLaunch);
+        try {
+            runScript();
+        } finally {
+            reporters.forEach(AlexaReporter::close);
+            getEndpointChain().stream()
+                    .filter(e -> e instanceof AlexaRecordingEndpoint)
+                    .forEach(e -> ((AlexaRecordingEndpoint)e).close());
+            getEndpointChain().stream()
+                    .filter(e -> e instanceof AlexaApiEndpoint)
+                    .forEach(e -> ((AlexaApiEndpoint)e).close());
+        }
+    }
+
+    private void runScript() {
+        if (combinationRunner != null) {
+            final AlexaCombinationResult result = combinationRunner.withClient(this).build().run();
+            log.info(String.format("%n%s", result.getReport()));
+            if (!result.isPassed()) {
+                throw new RuntimeException(String.format("[FAILED] %s", result.getReport()));
+            }
+            if (script == null) {
+                return;
+            }
+        }
+        Validate.notNull(script, "[ERROR] Could not find Launch node. Add this node to the top level of your YAML script and use it as an entry point for your conversation path.");
+        if (explorer != null) {
+            final AlexaExplorationResult result = explorer.withClient(this, script).build().run();
+            log.info(String.format("%n%s", result.getReport()));
+            logLatencyReport();
+            if (!result.isPassed()) {
+                throw new RuntimeException(String.format("[FAILED] %s", result.getReport()));
+            }
+        } else if (loadProfile != null) {
+            final AlexaLoadRunner runner = startLoad(loadProfile, script::execute);
+            if (!runner.isPassed()) {
+                throw new RuntimeException(String.format("[FAILED] %s", runner.getSummary()));
+            }
+        } else {
+            script.execute(startSession());
+            logLatencyReport();
+        }
+    }
+
+    void logLatencyReport() {
+        if (!latencyRecorder.isEmpty()) {
+            log.info(String.format("%n%s", latencyRecorder.getReport()));
+        }
+        getEndpointChain().forEach(current -> {
+            if (current instanceof AlexaCachingEndpoint) {
+                log.info(((AlexaCachingEndpoint)current).getReport());
+            } else if (current instanceof AlexaResilientEndpoint) {
+                log.info(((AlexaResilientEndpoint)current).getReport());
+            } else if (current instanceof AlexaApiEndpoint) {
+                log.info(((AlexaApiEndpoint)current).getRateLimiter().getReport());
+            }
+        });
+    }
+
+    /**
+     * The endpoint of this client followed by the endpoints it decorates, e.g. a caching endpoint
+     * followed by the recording endpoint it wraps and the endpoint calling the skill.
+     * @return endpoints from the outermost to the innermost
+     */
+    List<AlexaEndpoint> getEndpointChain() {
+        final List<AlexaEndpoint> chain = new ArrayList<>();
+        AlexaEndpoint current = endpoint;
+        while (current != null) {
+            chain.add(current);
+            current = current instanceof AlexaCachingEndpoint ? ((AlexaCachingEndpoint)current).getEndpoint() :
+                    current instanceof AlexaRecordingEndpoint ? ((AlexaRecordingEndpoint)current).getEndpoint() :
+                            current instanceof AlexaResilientEndpoint ? ((AlexaResilientEndpoint)current).getEndpoint() : null;
+        }
+        return chain;
+    }
+
+    /**
+     * Starts new sessions at the rate given by the load profile and runs the conversation
+     * in each of them. Blocks until all sessions have finished.
+     * @param loadProfile the profile of arriving sessions
+     * @param conversation the conversation executed in each session
+     * @return the runner holding the results of the load run
+     */
+    public AlexaLoadRunner startLoad(final AlexaLoadProfile loadProfile, final Consumer<AlexaSession> conversation) {
+        return new AlexaLoadRunner(this, loadProfile).run(conversation);
     }
 
     public Locale getLocale() {
@@ -172,7 +398,7 @@ public class AlexaClient {
 
     public static class AlexaClientBuilder {
         AlexaEndpoint endpoint;
-        Object yLaunch;
+        AlexaScript script;
         String applicationId;
         AlexaClient.API_ENDPOINT apiEndpoint;
         Locale locale;
@@ -183,6 +409,10 @@ public class AlexaClient {
         Device device;
         List<Interface> interfaces = new ArrayList<>();
         Date timestamp;
+        AlexaLoadProfile loadProfile;
+        AlexaCombinationRunner.AlexaCombinationRunnerBuilder combinationRunner;
+        AlexaScriptExplorer.AlexaScriptExplorerBuilder explorer;
+        List<AlexaReporter> reporters = new ArrayList<>();
 
         AlexaClientBuilder(final AlexaEndpoint endpoint) {
             this.endpoint = endpoint;
@@ -226,7 +456,47 @@ public class AlexaClient {
                 this.accessToken = Optional.ofNullable(yUser.get("accessToken")).map(Object::toString).orElse(System.getenv("skillAccessToken"));
             });
 
-            yLaunch = Optional.ofNullable(yRoot.get("Launch")).orElseThrow(() -> new RuntimeException("There's no 'Launch'-node provided in the YAML script. Create a top-level node named 'Launch' as it is the entry point for the conversation you'd like to simulate."));
+            // metrics and logging are process-wide, the first script configuring them wins and conflicting scripts fail
+            Optional.ofNullable(yConfig.get("metrics")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yMetrics -> {
+                AlexaMetrics.getInstance().configure(yMetrics);
+            });
+
+            Optional.ofNullable(yConfig.get("logging")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yLogging -> {
+                if (Boolean.parseBoolean(String.valueOf(yLogging.get("async")))) {
+                    AlexaAsyncAppender.install(Optional.ofNullable(yLogging.get("bufferSize")).map(o -> Integer.parseInt(o.toString())).orElse(AlexaAsyncAppender.DEFAULT_BUFFER_SIZE));
+                }
+            });
+
+            Optional.ofNullable(yConfig.get("load")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yLoad -> {
+                this.loadProfile = AlexaLoadProfile.create(yLoad);
+            });
+
+            Optional.ofNullable(yConfig.get("combinations")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yCombinations -> {
+                this.combinationRunner = AlexaCombinationRunner.create(yCombinations);
+            });
+
+            Optional.ofNullable(yConfig.get("explore")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yExplore -> {
+                this.explorer = AlexaScriptExplorer.create(yExplore);
+            });
+
+            // a script may only run slot combinations without a conversation
+            if (combinationRunner == null || yRoot.containsKey("Launch")) {
+                final Object yLaunch = Optional.ofNullable(yRoot.get("Launch")).orElseThrow(() -> new RuntimeException("There's no 'Launch'-node provided in the YAML script. Create a top-level node named 'Launch' as it is the entry point for the conversation you'd like to simulate."));
+                // compile once, so the script is validated up front and can be run by many sessions
+                this.script = AlexaScript.compile(yLaunch);
+            }
+
+            // report files are opened once the script is known to be valid
+            Optional.ofNullable(yConfig.get("reports")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yReports -> {
+                final int queueSize = Optional.ofNullable(yReports.get("queueSize")).map(o -> Integer.parseInt(o.toString())).orElse(AlexaAsyncReporter.DEFAULT_QUEUE_SIZE);
+                final boolean dropWhenFull = Optional.ofNullable(yReports.get("dropWhenFull")).map(o -> Boolean.parseBoolean(o.toString())).orElse(true);
+                Optional.ofNullable(yReports.get("jsonl")).map(Object::toString).ifPresent(file -> {
+                    withReporter(AlexaJsonLinesReporter.create(file).withQueueSize(queueSize).withDropWhenFull(dropWhenFull).build());
+                });
+                Optional.ofNullable(yReports.get("junit")).map(Object::toString).ifPresent(file -> {
+                    withReporter(AlexaJUnitReporter.create(file).withQueueSize(queueSize).withDropWhenFull(dropWhenFull).build());
+                });
+            });
         }
 
         public AlexaClientBuilder withEndpoint(final AlexaEndpoint endpoint) {
@@ -293,6 +563,23 @@ public class AlexaClient {
             return this;
         }
 
+        public AlexaClientBuilder withLoadProfile(final AlexaLoadProfile loadProfile) {
+            this.loadProfile = loadProfile;
+            return this;
+        }
+
+        /**
+         * Adds a reporter receiving an event for each request fired and each assertion validated. Reporters are
+         * closed when a script started with startScript has finished. Otherwise close them once you are done.
+         * @param reporter the reporter
+         * @return builder
+         */
+        public AlexaClientBuilder withReporter(final AlexaReporter reporter) {
+            Validate.notNull(reporter, "Reporter must not be null.");
+            this.reporters.add(reporter);
+            return this;
+        }
+
         public AlexaClientBuilder withDebugFlagSessionAttribute(final String debugFlagSessionAttributeName) {
             this.debugFlagSessionAttributeName = debugFlagSessionAttributeName;
             return this;
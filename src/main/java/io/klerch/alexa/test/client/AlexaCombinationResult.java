@@ -0,0 +1,121 @@
+package io.klerch.alexa.test.client;
+
+import java.util.*;
+
+/**
+ * Aggregated results of a combination run. Instead of keeping a result per combination it counts the
+ * outcomes, the failures per assertion and keeps a few of the failing combinations as samples.
+ */
+public class AlexaCombinationResult {
+    private final String intentName;
+    private final long combinationCount;
+    private final long passedCount;
+    private final long failedCount;
+    private final long errorCount;
+    private final Map<String, Long> failuresByAssertion;
+    private final List<Failure> samples;
+    private final long durationMillis;
+
+    public static class Failure {
+        private final Map<String, Object> slots;
+        private final String reason;
+
+        Failure(final Map<String, Object> slots, final String reason) {
+            this.slots = Collections.unmodifiableMap(slots);
+            this.reason = reason;
+        }
+
+        public Map<String, Object> getSlots() {
+            return slots;
+        }
+
+        /**
+         * The assertions which did not hold or the message of the error that occurred.
+         * @return reason of the failure
+         */
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    AlexaCombinationResult(final String intentName, final long combinationCount, final long passedCount, final long failedCount,
+                           final long errorCount, final Map<String, Long> failuresByAssertion, final List<Failure> samples, final long durationMillis) {
+        this.intentName = intentName;
+        this.combinationCount = combinationCount;
+        this.passedCount = passedCount;
+        this.failedCount = failedCount;
+        this.errorCount = errorCount;
+        this.failuresByAssertion = Collections.unmodifiableMap(failuresByAssertion);
+        this.samples = Collections.unmodifiableList(samples);
+        this.durationMillis = durationMillis;
+    }
+
+    public String getIntentName() {
+        return intentName;
+    }
+
+    public long getCombinationCount() {
+        return combinationCount;
+    }
+
+    public long getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * Combinations whose response did not satisfy all assertions.
+     * @return number of failed combinations
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Combinations for which the skill did not return a response or the request failed.
+     * @return number of erroneous combinations
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Number of combinations each assertion failed for, ordered by assertion.
+     * @return failures per assertion
+     */
+    public Map<String, Long> getFailuresByAssertion() {
+        return failuresByAssertion;
+    }
+
+    /**
+     * Some of the failed and erroneous combinations in the order they occurred.
+     * @return sample of failures
+     */
+    public List<Failure> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Wall-clock time of the whole run.
+     * @return milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean isPassed() {
+        return failedCount == 0 && errorCount == 0;
+    }
+
+    /**
+     * The totals followed by the failures per assertion and the sampled failing combinations.
+     * @return summary
+     */
+    public String getReport() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Intent '%1$s': %2$s combinations, %3$s passed, %4$s failed, %5$s errors in %6$s ms.%n",
+                intentName, combinationCount, passedCount, failedCount, errorCount, durationMillis));
+        failuresByAssertion.forEach((assertion, count) -> sb.append(String.format("  %1$8d x %2$s%n", count, assertion)));
+        samples.forEach(sample -> sb.append(String.format("    -> %1$s %2$s%n", sample.getSlots(), sample.getReason())));
+        return sb.toString().trim();
+    }
+}
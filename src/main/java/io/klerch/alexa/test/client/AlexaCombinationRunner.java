@@ -0,0 +1,242 @@
+package io.klerch.alexa.test.client;
+
+import io.klerch.alexa.test.response.AlexaAssertion;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The combination runner fires an intent once for each slot combination and validates the responses with
+ * a set of assertions. Every combination runs in a new session, so the order in which the workers pick them
+ * up does not matter. Combinations are generated while the run goes on and only the counts and a few
+ * failing combinations are kept, so tens of thousands of them can be run without holding them in memory.
+ */
+public class AlexaCombinationRunner {
+    private final static Logger log = Logger.getLogger(AlexaCombinationRunner.class);
+    private final static int DEFAULT_MAX_SAMPLES = 10;
+    private final AlexaClient client;
+    private final String intentName;
+    private final AlexaSlotCombinations combinations;
+    private final Map<String, AlexaAssertion> assertions;
+    private final int parallelism;
+    private final int maxSamples;
+
+    AlexaCombinationRunner(final AlexaCombinationRunnerBuilder builder) {
+        this.client = builder.client;
+        this.intentName = builder.intentName;
+        this.combinations = builder.combinations;
+        this.assertions = new LinkedHashMap<>(builder.assertions);
+        this.parallelism = builder.parallelism;
+        this.maxSamples = builder.maxSamples;
+    }
+
+    public String getIntentName() {
+        return intentName;
+    }
+
+    public AlexaSlotCombinations getCombinations() {
+        return combinations;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs all combinations and blocks until the last of them has finished.
+     * @return aggregated results
+     */
+    public AlexaCombinationResult run() {
+        final LongAdder passed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final Map<String, LongAdder> failuresByAssertion = new ConcurrentHashMap<>();
+        final List<AlexaCombinationResult.Failure> samples = Collections.synchronizedList(new ArrayList<>());
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-combination-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info(String.format("[START] running intent '%1$s' with %2$s slot combinations of %3$s with up to %4$s in parallel ...",
+                intentName, combinations.getStrategy().name().toLowerCase(), combinations.getSlotNames(), parallelism));
+
+        final long startNanos = System.nanoTime();
+        try (final Stream<Map<String, Object>> stream = combinations.stream()) {
+            // workers pull the next combination from the shared iterator, so combinations are generated on demand
+            final Iterator<Map<String, Object>> iterator = stream.iterator();
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++) {
+                workers.add(executor.submit(() -> {
+                    Map<String, Object> slots;
+                    while ((slots = next(iterator)) != null) {
+                        final List<String> failedAssertions = new ArrayList<>();
+                        String reason;
+                        try {
+                            execute(slots, failedAssertions);
+                            if (failedAssertions.isEmpty()) {
+                                passed.increment();
+                                continue;
+                            }
+                            failed.increment();
+                            failedAssertions.forEach(assertion -> failuresByAssertion.computeIfAbsent(assertion, k -> new LongAdder()).increment());
+                            reason = String.format("failed %s", failedAssertions);
+                        } catch (final RuntimeException e) {
+                            // isolate the failure to this combination and carry on with the others
+                            errors.increment();
+                            reason = e.getMessage();
+                        }
+                        log.error(String.format("[FAILED] intent '%1$s' with %2$s %3$s", intentName, slots, reason));
+                        synchronized (samples) {
+                            if (samples.size() < maxSamples) {
+                                samples.add(new AlexaCombinationResult.Failure(slots, reason));
+                            }
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> worker : workers) {
+                join(worker);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final AlexaCombinationResult result = new AlexaCombinationResult(intentName,
+                passed.sum() + failed.sum() + errors.sum(), passed.sum(), failed.sum(), errors.sum(),
+                failuresByAssertion.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum(), (a, b) -> a, TreeMap::new)),
+                new ArrayList<>(samples), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        log.info(String.format("[DONE] running intent '%1$s' with %2$s slot combinations in %3$s ms. %4$s passed, %5$s failed, %6$s errors.",
+                intentName, result.getCombinationCount(), result.getDurationMillis(), result.getPassedCount(), result.getFailedCount(), result.getErrorCount()));
+        return result;
+    }
+
+    private static Map<String, Object> next(final Iterator<Map<String, Object>> iterator) {
+        synchronized (iterator) {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    private void execute(final Map<String, Object> slots, final List<String> failedAssertions) {
+        // one-shot requests open a new session with the intent itself
+        final AlexaSession session = new AlexaSession(client, AlexaSession.createSession(client, true));
+        try {
+            final AlexaResponse response = session.intent(intentName, slots);
+            assertions.forEach((expression, assertion) -> {
+                final boolean passed = response.is(assertion);
+                if (!client.getReporters().isEmpty()) {
+                    client.report(AlexaReportEvent.assertion(response, expression, passed));
+                }
+                if (passed) {
+                    AlexaMetrics.getInstance().increment(AlexaMetrics.ASSERTIONS_PASSED);
+                } else {
+                    AlexaMetrics.getInstance().increment(AlexaMetrics.ASSERTIONS_FAILED);
+                    failedAssertions.add(expression);
+                }
+            });
+        } finally {
+            session.trackInFlight(false);
+        }
+    }
+
+    private static void join(final Future<?> worker) {
+        try {
+            worker.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Combination run was interrupted.", e);
+        } catch (final ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : new RuntimeException(e.getCause());
+        }
+    }
+
+    public static AlexaCombinationRunnerBuilder create(final AlexaClient client, final String intentName) {
+        return new AlexaCombinationRunnerBuilder(client, intentName);
+    }
+
+    static AlexaCombinationRunnerBuilder create(final HashMap<Object, Object> yCombinations) {
+        Validate.isTrue(yCombinations.containsKey("intent"), "intent-attribute is missing in your combinations configuration.");
+
+        final AlexaSlotCombinations.AlexaSlotCombinationsBuilder combinationsBuilder = Optional.ofNullable(yCombinations.get("slots"))
+                .filter(o -> o instanceof Map).map(o -> AlexaSlotCombinations.create((Map<?, ?>)o)).orElseGet(AlexaSlotCombinations::create);
+        Optional.ofNullable(yCombinations.get("csv")).map(Object::toString).ifPresent(csv -> combinationsBuilder.withSlotValues(Paths.get(csv)));
+        Optional.ofNullable(yCombinations.get("strategy")).map(Object::toString)
+                .ifPresent(strategy -> combinationsBuilder.withStrategy(AlexaSlotCombinations.Strategy.valueOf(strategy.toUpperCase())));
+
+        final AlexaCombinationRunnerBuilder builder = new AlexaCombinationRunnerBuilder(null, yCombinations.get("intent").toString())
+                .withCombinations(combinationsBuilder.build());
+        Optional.ofNullable(yCombinations.get("assertions")).filter(o -> o instanceof List).map(o -> (List<?>)o)
+                .ifPresent(yAssertions -> yAssertions.forEach(assertion -> builder.withAssertion(assertion.toString())));
+        Optional.ofNullable(yCombinations.get("parallelism")).map(Object::toString).map(Integer::valueOf).ifPresent(builder::withParallelism);
+        Optional.ofNullable(yCombinations.get("maxSamples")).map(Object::toString).map(Integer::valueOf).ifPresent(builder::withMaxSamples);
+        return builder;
+    }
+
+    public static class AlexaCombinationRunnerBuilder {
+        AlexaClient client;
+        String intentName;
+        AlexaSlotCombinations combinations;
+        final Map<String, AlexaAssertion> assertions = new LinkedHashMap<>();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int maxSamples = DEFAULT_MAX_SAMPLES;
+
+        AlexaCombinationRunnerBuilder(final AlexaClient client, final String intentName) {
+            this.client = client;
+            this.intentName = intentName;
+        }
+
+        AlexaCombinationRunnerBuilder withClient(final AlexaClient client) {
+            this.client = client;
+            return this;
+        }
+
+        public AlexaCombinationRunnerBuilder withCombinations(final AlexaSlotCombinations combinations) {
+            this.combinations = combinations;
+            return this;
+        }
+
+        /**
+         * Adds an assertion each response has to satisfy, e.g. response.shouldEndSession == true
+         * @param expression the simplified json-path expression
+         * @return builder
+         */
+        public AlexaCombinationRunnerBuilder withAssertion(final String expression) {
+            Validate.notBlank(expression, "Assertion must not be blank.");
+            this.assertions.put(expression, AlexaAssertion.create(expression));
+            return this;
+        }
+
+        public AlexaCombinationRunnerBuilder withParallelism(final int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Number of failing combinations kept in the result. Defaults to 10.
+         * @param maxSamples maximum number of sampled failures
+         * @return builder
+         */
+        public AlexaCombinationRunnerBuilder withMaxSamples(final int maxSamples) {
+            this.maxSamples = maxSamples;
+            return this;
+        }
+
+        public AlexaCombinationRunner build() {
+            Validate.notNull(client, "Client must not be null.");
+            Validate.notBlank(intentName, "Intent name must not be blank.");
+            Validate.notNull(combinations, "Slot combinations must not be null.");
+            Validate.isTrue(parallelism > 0, "Parallelism must be greater than zero.");
+            Validate.isTrue(maxSamples >= 0, "Number of sampled failures must not be negative.");
+            return new AlexaCombinationRunner(this);
+        }
+    }
+}
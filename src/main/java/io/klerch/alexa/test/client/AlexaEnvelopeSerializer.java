@@ -0,0 +1,95 @@
+package io.klerch.alexa.test.client;
+
+import com.amazon.speech.speechlet.Application;
+import com.amazon.speech.speechlet.Context;
+import com.amazon.speech.speechlet.Session;
+import com.amazon.speech.speechlet.SpeechletRequest;
+import com.amazon.speech.speechlet.User;
+import com.amazon.speech.speechlet.interfaces.system.SystemState;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.request.AlexaSessionStartedRequest;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Serializes request envelopes of a client. The parts of an envelope which never change within a client
+ * (version, application, user, device and the whole context) are rendered once. Per request only the session
+ * state and the request itself are written. The output is the same as serializing a SpeechletRequestEnvelope.
+ */
+class AlexaEnvelopeSerializer {
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    // buffers grown beyond this size are not kept for the next envelope
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+    private static final ThreadLocal<StringWriter> buffers = ThreadLocal.withInitial(() -> new StringWriter(INITIAL_BUFFER_SIZE));
+    private final ObjectMapper mapper;
+    private final ObjectWriter requestWriter;
+    private final Application application;
+    private final User user;
+    // {"version":"1.0","session":{"new":
+    private final String headFragment;
+    // ,"application":{...}
+    private final String applicationFragment;
+    // ,"user":{...}},"context":{...},"request":
+    private final String tailFragment;
+
+    AlexaEnvelopeSerializer(final ObjectMapper mapper, final AlexaClient client) throws IOException {
+        this.mapper = mapper;
+        // the request is written with its declared type in the envelope so that it carries its type id
+        this.requestWriter = mapper.writerFor(SpeechletRequest.class);
+        this.application = client.getApplication();
+        this.user = client.getUser();
+
+        final SystemState systemState = SystemState.builder()
+                .withUser(user)
+                .withDevice(client.device)
+                .withApiEndpoint(client.apiEndpoint)
+                .withApplication(application).build();
+        final Context context = Context.builder().addState(systemState).build();
+
+        this.headFragment = "{\"version\":" + mapper.writeValueAsString(AlexaClient.VERSION) + ",\"session\":{\"new\":";
+        this.applicationFragment = ",\"application\":" + mapper.writeValueAsString(application);
+        this.tailFragment = ",\"user\":" + mapper.writeValueAsString(user) + "},\"context\":" + mapper.writeValueAsString(context) + ",\"request\":";
+    }
+
+    /**
+     * Tells if envelopes of this session can be written from the pre-rendered parts. This is not the case
+     * for sessions created with an application or user different from the client's.
+     * @param session the session
+     * @return True, if the session shares application and user with the client
+     */
+    boolean supports(final Session session) {
+        return session.getApplication() == application && session.getUser() == user && session.getAttributes() != null;
+    }
+
+    String serialize(final Session session, final AlexaRequest request) throws IOException {
+        // each thread writes its envelopes into the same buffer
+        final StringWriter writer = buffers.get();
+        writer.getBuffer().setLength(0);
+        try (final JsonGenerator generator = mapper.getFactory().createGenerator(writer)) {
+            // values are written into the raw parts, so they must not be separated like root values
+            generator.setRootValueSeparator(null);
+            generator.writeRaw(headFragment);
+            generator.writeRaw(request instanceof AlexaSessionStartedRequest || session.isNew() ? "true" : "false");
+            generator.writeRaw(",\"sessionId\":");
+            generator.writeString(session.getSessionId());
+            generator.writeRaw(applicationFragment);
+            // like Session the envelope leaves out empty attributes
+            if (!session.getAttributes().isEmpty()) {
+                generator.writeRaw(",\"attributes\":");
+                mapper.writeValue(generator, session.getAttributes());
+            }
+            generator.writeRaw(tailFragment);
+            requestWriter.writeValue(generator, request.getSpeechletRequest());
+            generator.writeRaw('}');
+        }
+        final String envelope = writer.toString();
+        if (writer.getBuffer().capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffers.remove();
+        }
+        return envelope;
+    }
+}
@@ -0,0 +1,150 @@
+package io.klerch.alexa.test.client;
+
+import java.util.*;
+
+/**
+ * Results of exploring a conversation script with one entry per branch and the coverage of the
+ * script's steps (nodes) and the conditions and follow-ups connecting them (edges).
+ */
+public class AlexaExplorationResult {
+    private final List<BranchResult> branches;
+    private final Set<String> nodes;
+    private final Set<String> coveredNodes;
+    private final Set<String> edges;
+    private final Set<String> coveredEdges;
+    private final long durationMillis;
+
+    public static class BranchResult {
+        private final List<String> path;
+        private final boolean forced;
+        private final boolean truncated;
+        private final Throwable failure;
+
+        BranchResult(final List<String> path, final boolean forced, final boolean truncated, final Throwable failure) {
+            this.path = Collections.unmodifiableList(path);
+            this.forced = forced;
+            this.truncated = truncated;
+            this.failure = failure;
+        }
+
+        /**
+         * The steps fired in this branch, starting with the step it was forked at.
+         * @return labels of the steps
+         */
+        public List<String> getPath() {
+            return path;
+        }
+
+        /**
+         * A forced branch follows a condition which was not met by the skill's response.
+         * @return true if the branch was forced
+         */
+        public boolean isForced() {
+            return forced;
+        }
+
+        /**
+         * A truncated branch was stopped after the maximum number of requests.
+         * @return true if the branch was truncated
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public boolean isPassed() {
+            return failure == null;
+        }
+
+        /**
+         * The reason the branch failed.
+         * @return the exception or assertion error, null if the branch passed
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+    }
+
+    AlexaExplorationResult(final List<BranchResult> branches, final Set<String> nodes, final Set<String> coveredNodes,
+                           final Set<String> edges, final Set<String> coveredEdges, final long durationMillis) {
+        this.branches = Collections.unmodifiableList(branches);
+        this.nodes = Collections.unmodifiableSet(nodes);
+        this.coveredNodes = Collections.unmodifiableSet(coveredNodes);
+        this.edges = Collections.unmodifiableSet(edges);
+        this.coveredEdges = Collections.unmodifiableSet(coveredEdges);
+        this.durationMillis = durationMillis;
+    }
+
+    public List<BranchResult> getBranches() {
+        return branches;
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public Set<String> getCoveredNodes() {
+        return coveredNodes;
+    }
+
+    public Set<String> getEdges() {
+        return edges;
+    }
+
+    public Set<String> getCoveredEdges() {
+        return coveredEdges;
+    }
+
+    /**
+     * Wall-clock time of the whole exploration.
+     * @return milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getFailedCount() {
+        return branches.stream().filter(b -> !b.isPassed()).count();
+    }
+
+    public boolean isPassed() {
+        return getFailedCount() == 0;
+    }
+
+    /**
+     * Share of steps fired at least once.
+     * @return value between 0 and 1
+     */
+    public double getNodeCoverage() {
+        return nodes.isEmpty() ? 1.0 : (double)coveredNodes.size() / nodes.size();
+    }
+
+    /**
+     * Share of conditions and follow-ups followed at least once.
+     * @return value between 0 and 1
+     */
+    public double getEdgeCoverage() {
+        return edges.isEmpty() ? 1.0 : (double)coveredEdges.size() / edges.size();
+    }
+
+    /**
+     * A list of all branches with their outcome followed by the coverage and the steps, conditions
+     * and follow-ups never reached.
+     * @return summary
+     */
+    public String getReport() {
+        final StringBuilder sb = new StringBuilder();
+        branches.forEach(b -> {
+            sb.append(String.format("%-6s %s%s%s%n", b.isPassed() ? "PASSED" : "FAILED", b.isForced() ? "(forced) " : "",
+                    String.join(" > ", b.getPath()), b.isTruncated() ? " ..." : ""));
+            if (!b.isPassed()) {
+                sb.append(String.format("    -> %s%n", b.getFailure().getMessage()));
+            }
+        });
+        sb.append(String.format("%1$s branches, %2$s failed in %3$s ms. Covered %4$s of %5$s steps (%6$.0f%%) and %7$s of %8$s edges (%9$.0f%%).%n",
+                branches.size(), getFailedCount(), durationMillis, coveredNodes.size(), nodes.size(), getNodeCoverage() * 100,
+                coveredEdges.size(), edges.size(), getEdgeCoverage() * 100));
+        nodes.stream().filter(node -> !coveredNodes.contains(node)).forEach(node -> sb.append(String.format("    not reached: %s%n", node)));
+        edges.stream().filter(edge -> !coveredEdges.contains(edge)).forEach(edge -> sb.append(String.format("    not followed: %s%n", edge)));
+        return sb.toString().trim();
+    }
+}
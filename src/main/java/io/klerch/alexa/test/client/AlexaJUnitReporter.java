@@ -0,0 +1,194 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Writes events as test cases of a JUnit XML report which CI servers can display. Each request is a test
+ * case named after its request type in a class named after the sessionId, failing with an error if the
+ * request failed. Each assertion is a test case of the same class failing if the assertion does not hold.
+ * As the totals are part of the first element, test cases are streamed to a temporary file which is
+ * appended to the report when it is closed. Passed test cases dropped as the writer could not keep up are
+ * counted in the dropped property of the test suite.
+ */
+public class AlexaJUnitReporter extends AlexaAsyncReporter {
+    private final static String DEFAULT_SUITE_NAME = "alexa-skills-kit-tester";
+    private final Path file;
+    private final Path body;
+    private final String suiteName;
+    private final Writer bodyWriter;
+    private final XMLStreamWriter xml;
+    private final long startMillis = System.currentTimeMillis();
+    private long tests;
+    private long failures;
+    private long errors;
+    private long latencyMicros;
+
+    AlexaJUnitReporter(final AlexaJUnitReporterBuilder builder) throws IOException {
+        super("junit", builder.queueSize, builder.dropWhenFull);
+        this.file = builder.file;
+        this.suiteName = builder.suiteName;
+        this.body = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        this.bodyWriter = Files.newBufferedWriter(body, StandardCharsets.UTF_8);
+        try {
+            this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(bodyWriter);
+        } catch (final XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    protected void write(final AlexaReportEvent event) throws IOException {
+        final boolean isRequest = event.getType() == AlexaReportEvent.Type.REQUEST;
+        tests++;
+        latencyMicros += event.getLatencyMicros();
+        try {
+            xml.writeCharacters("\n  ");
+            xml.writeStartElement("testcase");
+            xml.writeAttribute("classname", event.getSessionId());
+            xml.writeAttribute("name", isRequest ? event.getRequest() : event.getRequest() + " " + event.getAssertion());
+            xml.writeAttribute("time", toSeconds(event.getLatencyMicros()));
+            if (!event.isPassed()) {
+                if (isRequest) {
+                    errors++;
+                    xml.writeEmptyElement("error");
+                    xml.writeAttribute("message", String.valueOf(event.getError()));
+                } else {
+                    failures++;
+                    xml.writeEmptyElement("failure");
+                    xml.writeAttribute("message", String.format("Assertion '%s' is FALSE.", event.getAssertion()));
+                }
+            }
+            xml.writeEndElement();
+        } catch (final XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        try {
+            xml.flush();
+        } catch (final XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        try {
+            xml.close();
+        } catch (final XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            bodyWriter.close();
+        }
+        try (final OutputStream out = Files.newOutputStream(file)) {
+            final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            final XMLStreamWriter header = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+            header.writeStartDocument("UTF-8", "1.0");
+            header.writeCharacters("\n");
+            header.writeStartElement("testsuite");
+            header.writeAttribute("name", suiteName);
+            header.writeAttribute("tests", String.valueOf(tests));
+            header.writeAttribute("failures", String.valueOf(failures));
+            header.writeAttribute("errors", String.valueOf(errors));
+            header.writeAttribute("skipped", "0");
+            header.writeAttribute("time", toSeconds(latencyMicros));
+            header.writeAttribute("timestamp", DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(Instant.ofEpochMilli(startMillis).atOffset(ZoneOffset.UTC)));
+            header.writeCharacters("\n  ");
+            header.writeStartElement("properties");
+            header.writeEmptyElement("property");
+            header.writeAttribute("name", "dropped");
+            header.writeAttribute("value", String.valueOf(getDropped()));
+            header.writeEndElement();
+            header.flush();
+            writer.flush();
+            Files.copy(body, out);
+            writer.write("\n</testsuite>\n");
+            writer.flush();
+        } catch (final XMLStreamException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(body);
+        }
+    }
+
+    private static String toSeconds(final long micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1_000_000.0);
+    }
+
+    public static AlexaJUnitReporterBuilder create(final String file) {
+        return create(Paths.get(file));
+    }
+
+    public static AlexaJUnitReporterBuilder create(final Path file) {
+        return new AlexaJUnitReporterBuilder(file);
+    }
+
+    public static class AlexaJUnitReporterBuilder {
+        Path file;
+        String suiteName = DEFAULT_SUITE_NAME;
+        int queueSize = DEFAULT_QUEUE_SIZE;
+        boolean dropWhenFull = true;
+
+        AlexaJUnitReporterBuilder(final Path file) {
+            this.file = file;
+        }
+
+        public AlexaJUnitReporterBuilder withSuiteName(final String suiteName) {
+            this.suiteName = suiteName;
+            return this;
+        }
+
+        /**
+         * Number of events waiting to be written. Defaults to 10000.
+         * @param queueSize maximum number of queued events
+         * @return builder
+         */
+        public AlexaJUnitReporterBuilder withQueueSize(final int queueSize) {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * Drops passed events rather than waiting for the writer to catch up when the queue is full. Defaults to true,
+         * so sessions never wait for the disk. Failed events are never dropped. Set it to false if the report must be complete.
+         * @param dropWhenFull true to drop events, false to wait
+         * @return builder
+         */
+        public AlexaJUnitReporterBuilder withDropWhenFull(final boolean dropWhenFull) {
+            this.dropWhenFull = dropWhenFull;
+            return this;
+        }
+
+        public AlexaJUnitReporter build() {
+            Validate.notNull(file, "Report file must not be null.");
+            Validate.notBlank(suiteName, "Test suite name must not be blank.");
+            try {
+                return new AlexaJUnitReporter(this);
+            } catch (final IOException e) {
+                throw new RuntimeException(String.format("Could not create report file %s. %s", file, e.getMessage()), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.klerch.alexa.test.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes one JSON object per line and event, e.g.
+ * {"timestamp":1510000000000,"type":"REQUEST","sessionId":"SessionId.1","request":"IntentRequest:Guess","latencyMicros":5120,"passed":true,"shouldEndSession":false,"outputSpeech":"..."}
+ * Fields without a value are left out.
+ */
+public class AlexaJsonLinesReporter extends AlexaAsyncReporter {
+    private final Path file;
+    private final JsonGenerator generator;
+
+    AlexaJsonLinesReporter(final AlexaJsonLinesReporterBuilder builder) throws IOException {
+        super("jsonl", builder.queueSize, builder.dropWhenFull);
+        this.file = builder.file;
+        this.generator = new JsonFactory().createGenerator(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+        // separate root values by line breaks
+        this.generator.setRootValueSeparator(null);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    protected void write(final AlexaReportEvent event) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("timestamp", event.getTimestamp());
+        generator.writeStringField("type", event.getType().name());
+        generator.writeStringField("sessionId", event.getSessionId());
+        generator.writeStringField("request", event.getRequest());
+        if (event.getType() == AlexaReportEvent.Type.REQUEST) {
+            generator.writeNumberField("latencyMicros", event.getLatencyMicros());
+        }
+        if (event.getRetries() > 0) {
+            generator.writeNumberField("retries", event.getRetries());
+        }
+        if (event.getAssertion() != null) {
+            generator.writeStringField("assertion", event.getAssertion());
+        }
+        generator.writeBooleanField("passed", event.isPassed());
+        if (event.getShouldEndSession() != null) {
+            generator.writeBooleanField("shouldEndSession", event.getShouldEndSession());
+        }
+        if (event.getOutputSpeech() != null) {
+            generator.writeStringField("outputSpeech", event.getOutputSpeech());
+        }
+        if (event.getError() != null) {
+            generator.writeStringField("error", event.getError());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        generator.close();
+    }
+
+    public static AlexaJsonLinesReporterBuilder create(final String file) {
+        return create(Paths.get(file));
+    }
+
+    public static AlexaJsonLinesReporterBuilder create(final Path file) {
+        return new AlexaJsonLinesReporterBuilder(file);
+    }
+
+    public static class AlexaJsonLinesReporterBuilder {
+        Path file;
+        int queueSize = DEFAULT_QUEUE_SIZE;
+        boolean dropWhenFull = true;
+
+        AlexaJsonLinesReporterBuilder(final Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Number of events waiting to be written. Defaults to 10000.
+         * @param queueSize maximum number of queued events
+         * @return builder
+         */
+        public AlexaJsonLinesReporterBuilder withQueueSize(final int queueSize) {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * Drops passed events rather than waiting for the writer to catch up when the queue is full. Defaults to true,
+         * so sessions never wait for the disk. Failed events are never dropped. Set it to false if the report must be complete.
+         * @param dropWhenFull true to drop events, false to wait
+         * @return builder
+         */
+        public AlexaJsonLinesReporterBuilder withDropWhenFull(final boolean dropWhenFull) {
+            this.dropWhenFull = dropWhenFull;
+            return this;
+        }
+
+        public AlexaJsonLinesReporter build() {
+            Validate.notNull(file, "Report file must not be null.");
+            try {
+                return new AlexaJsonLinesReporter(this);
+            } catch (final IOException e) {
+                throw new RuntimeException(String.format("Could not create report file %s. %s", file, e.getMessage()), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.klerch.alexa.test.client;
+
+import io.klerch.alexa.test.request.AlexaIntentRequest;
+import io.klerch.alexa.test.request.AlexaRequest;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency recorder keeps a high-dynamic-range histogram of latencies in nanoseconds per
+ * request type and intent name. Recording does not take locks so it can be fed by many
+ * sessions in parallel. Recorders can be merged e.g. to aggregate the results of several clients.
+ */
+public class AlexaLatencyRecorder {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(15);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = { 50.0, 90.0, 99.0, 99.9 };
+    private static final String REQUEST_CLASS_PREFIX = "Alexa";
+
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Records the latency of a request under the key derived from its type and intent.
+     * @param request the request that was fired
+     * @param latencyNanos nanoseconds it took the endpoint to return
+     */
+    public void record(final AlexaRequest request, final long latencyNanos) {
+        record(getKey(request), latencyNanos);
+    }
+
+    /**
+     * Records a latency under a custom key.
+     * @param key the key e.g. a request type
+     * @param latencyNanos latency in nanoseconds
+     */
+    public void record(final String key, final long latencyNanos) {
+        histograms.computeIfAbsent(key, k -> newHistogram())
+                .recordValue(Math.min(Math.max(latencyNanos, 0L), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    /**
+     * Adds all latencies recorded by another recorder to this one.
+     * @param other the recorder to merge in
+     */
+    public void add(final AlexaLatencyRecorder other) {
+        other.histograms.forEach((key, histogram) -> histograms.computeIfAbsent(key, k -> newHistogram()).add(histogram));
+    }
+
+    /**
+     * A copy of the histogram recorded for the given key.
+     * @param key the key e.g. IntentRequest:AMAZON.HelpIntent
+     * @return histogram copy or null if nothing has been recorded for the key
+     */
+    public Histogram getHistogram(final String key) {
+        final Histogram histogram = histograms.get(key);
+        return histogram != null ? histogram.copy() : null;
+    }
+
+    /**
+     * Copies of all histograms recorded so far ordered by key.
+     * @return histograms by key
+     */
+    public SortedMap<String, Histogram> getHistograms() {
+        final SortedMap<String, Histogram> copies = new TreeMap<>();
+        histograms.forEach((key, histogram) -> copies.put(key, histogram.copy()));
+        return copies;
+    }
+
+    void clear() {
+        histograms.clear();
+    }
+
+    public boolean isEmpty() {
+        return histograms.isEmpty();
+    }
+
+    /**
+     * Summarizes all histograms with their percentiles in milliseconds as a table.
+     * @return the latency report
+     */
+    public String getReport() {
+        final StringBuilder report = new StringBuilder(String.format("%-50s %8s %10s %10s %10s %10s %10s%n",
+                "Latency (ms)", "count", "p50", "p90", "p99", "p99.9", "max"));
+        for (final Map.Entry<String, Histogram> entry : getHistograms().entrySet()) {
+            final Histogram histogram = entry.getValue();
+            report.append(String.format("%-50s %8d", entry.getKey(), histogram.getTotalCount()));
+            for (final double percentile : PERCENTILES) {
+                report.append(String.format(" %10.3f", toMillis(histogram.getValueAtPercentile(percentile))));
+            }
+            report.append(String.format(" %10.3f%n", toMillis(histogram.getMaxValue())));
+        }
+        return report.toString();
+    }
+
+    static String getKey(final AlexaRequest request) {
+        final String type = request.getClass().getSimpleName();
+        final String requestType = type.startsWith(REQUEST_CLASS_PREFIX) ? type.substring(REQUEST_CLASS_PREFIX.length()) : type;
+        return request instanceof AlexaIntentRequest ? requestType + ":" + ((AlexaIntentRequest)request).getIntentName() : requestType;
+    }
+
+    private static Histogram newHistogram() {
+        final Histogram histogram = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
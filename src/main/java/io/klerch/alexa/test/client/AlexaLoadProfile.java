@@ -0,0 +1,183 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+/**
+ * A load profile describes the rate at which new sessions arrive during a load run. The rate
+ * is given in sessions per second and is a function of the time elapsed since the run started.
+ * Arrivals follow the profile regardless of how long the skill takes to respond (open model).
+ */
+public abstract class AlexaLoadProfile {
+    private static final int DEFAULT_THREADS = 100;
+    private final long durationMillis;
+    private int threads = DEFAULT_THREADS;
+    private boolean quiet;
+
+    AlexaLoadProfile(final long durationMillis) {
+        Validate.isTrue(durationMillis > 0, "Duration of a load profile must be greater than zero.");
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Rate of new sessions per second at the given point in time of the run.
+     * @param elapsedMillis milliseconds elapsed since the load run started
+     * @return sessions per second
+     */
+    public abstract double getRate(final long elapsedMillis);
+
+    /**
+     * The total duration of the load run in which new sessions are started.
+     * @return duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Maximum number of worker threads executing sessions in parallel. Sessions arriving while
+     * all workers are busy are queued but keep their intended start time.
+     * @return number of worker threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public AlexaLoadProfile withThreads(final int threads) {
+        Validate.isTrue(threads > 0, "Number of threads must be greater than zero.");
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * In a quiet load run requests and responses of the sessions are not traced, only failed sessions
+     * and the summaries are logged.
+     * @return True, if the load run is quiet
+     */
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public AlexaLoadProfile withQuiet(final boolean quiet) {
+        this.quiet = quiet;
+        return this;
+    }
+
+    /**
+     * Same number of new sessions per second over the whole run.
+     * @param rate sessions per second
+     * @param durationMillis duration of the run in milliseconds
+     * @return load profile
+     */
+    public static AlexaLoadProfile constant(final double rate, final long durationMillis) {
+        Validate.isTrue(rate > 0, "Rate must be greater than zero.");
+        return new AlexaLoadProfile(durationMillis) {
+            @Override
+            public double getRate(final long elapsedMillis) {
+                return rate;
+            }
+        };
+    }
+
+    /**
+     * Linearly increases the number of new sessions per second over the whole run.
+     * @param startRate sessions per second at the beginning of the run
+     * @param endRate sessions per second at the end of the run
+     * @param durationMillis duration of the run in milliseconds
+     * @return load profile
+     */
+    public static AlexaLoadProfile rampUp(final double startRate, final double endRate, final long durationMillis) {
+        Validate.isTrue(startRate >= 0 && endRate > 0, "Rates must not be negative and the end rate must be greater than zero.");
+        return new AlexaLoadProfile(durationMillis) {
+            @Override
+            public double getRate(final long elapsedMillis) {
+                return startRate + (endRate - startRate) * Math.min(elapsedMillis, durationMillis) / durationMillis;
+            }
+        };
+    }
+
+    /**
+     * Increases the number of new sessions per second in equal steps of equal length.
+     * @param startRate sessions per second in the first step
+     * @param endRate sessions per second in the last step
+     * @param steps number of steps
+     * @param durationMillis duration of the run in milliseconds
+     * @return load profile
+     */
+    public static AlexaLoadProfile step(final double startRate, final double endRate, final int steps, final long durationMillis) {
+        Validate.isTrue(startRate >= 0 && endRate > 0, "Rates must not be negative and the end rate must be greater than zero.");
+        Validate.isTrue(steps > 0, "Number of steps must be greater than zero.");
+        return new AlexaLoadProfile(durationMillis) {
+            @Override
+            public double getRate(final long elapsedMillis) {
+                if (steps == 1) {
+                    return endRate;
+                }
+                final int step = (int)Math.min(steps - 1, elapsedMillis * steps / durationMillis);
+                return startRate + (endRate - startRate) * step / (steps - 1);
+            }
+        };
+    }
+
+    /**
+     * Keeps a baseline of new sessions per second and bursts to a peak rate for a while.
+     * @param rate baseline sessions per second
+     * @param spikeRate sessions per second during the spike
+     * @param spikeStartMillis milliseconds after start of the run the spike begins
+     * @param spikeDurationMillis milliseconds the spike lasts
+     * @param durationMillis duration of the run in milliseconds
+     * @return load profile
+     */
+    public static AlexaLoadProfile spike(final double rate, final double spikeRate, final long spikeStartMillis, final long spikeDurationMillis, final long durationMillis) {
+        Validate.isTrue(rate >= 0 && spikeRate > 0, "Rates must not be negative and the spike rate must be greater than zero.");
+        return new AlexaLoadProfile(durationMillis) {
+            @Override
+            public double getRate(final long elapsedMillis) {
+                return elapsedMillis >= spikeStartMillis && elapsedMillis < spikeStartMillis + spikeDurationMillis ? spikeRate : rate;
+            }
+        };
+    }
+
+    static AlexaLoadProfile create(final HashMap<Object, Object> yLoad) {
+        final String profile = getString(yLoad, "profile").orElse("constant");
+        final long durationMillis = (long)(getNumber(yLoad, "duration").orElseThrow(() -> new RuntimeException("duration (in seconds) is missing in load configuration.")) * 1000);
+        final double rate = getNumber(yLoad, "rate").orElseThrow(() -> new RuntimeException("rate (sessions per second) is missing in load configuration."));
+        final double startRate = getNumber(yLoad, "startRate").orElse(0.0);
+
+        final AlexaLoadProfile loadProfile;
+        if (StringUtils.equalsIgnoreCase(profile, "constant")) {
+            loadProfile = constant(rate, durationMillis);
+        } else if (StringUtils.equalsIgnoreCase(profile, "rampUp")) {
+            loadProfile = rampUp(startRate, rate, durationMillis);
+        } else if (StringUtils.equalsIgnoreCase(profile, "step")) {
+            loadProfile = step(startRate, rate, getNumber(yLoad, "steps").orElse(5.0).intValue(), durationMillis);
+        } else if (StringUtils.equalsIgnoreCase(profile, "spike")) {
+            final double spikeRate = getNumber(yLoad, "spikeRate").orElseThrow(() -> new RuntimeException("spikeRate is missing in load configuration."));
+            final long spikeStart = (long)(getNumber(yLoad, "spikeStart").orElse(0.0) * 1000);
+            final long spikeDuration = (long)(getNumber(yLoad, "spikeDuration").orElse(durationMillis / 1000.0) * 1000);
+            loadProfile = spike(rate, spikeRate, spikeStart, spikeDuration, durationMillis);
+        } else {
+            throw new RuntimeException("Unknown load profile '" + profile + "'. Use constant, rampUp, step or spike.");
+        }
+        getNumber(yLoad, "threads").ifPresent(threads -> loadProfile.withThreads(threads.intValue()));
+        getString(yLoad, "quiet").ifPresent(quiet -> loadProfile.withQuiet(Boolean.parseBoolean(quiet)));
+        return loadProfile;
+    }
+
+    private static Optional<String> getString(final HashMap<Object, Object> yNode, final String key) {
+        return Optional.ofNullable(yNode.get(key)).map(Object::toString).filter(StringUtils::isNotBlank);
+    }
+
+    private static Optional<Double> getNumber(final HashMap<Object, Object> yNode, final String key) {
+        return getString(yNode, key).map(value -> {
+            try {
+                return Double.valueOf(value);
+            } catch (final NumberFormatException e) {
+                throw new RuntimeException(key + " in load configuration must be a number but was '" + value + "'.", e);
+            }
+        });
+    }
+}
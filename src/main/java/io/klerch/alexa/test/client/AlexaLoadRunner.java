@@ -0,0 +1,166 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * The load runner starts new sessions at the rate given by a load profile and executes
+ * each of them on a pooled worker. Sessions are dispatched at their intended start time no matter
+ * how long earlier sessions take, so slow responses do not throttle the arrival rate.
+ */
+public class AlexaLoadRunner {
+    private final static Logger log = Logger.getLogger(AlexaLoadRunner.class);
+    static final String SESSION_LATENCY_KEY = "Session (from intended start)";
+    private final AlexaClient client;
+    private final AlexaLoadProfile loadProfile;
+    private final LongAdder sessionsStarted = new LongAdder();
+    private final LongAdder sessionsSucceeded = new LongAdder();
+    private final LongAdder sessionsFailed = new LongAdder();
+    private final LongAccumulator maxStartDelayNanos = new LongAccumulator(Long::max, 0L);
+    private volatile long runMillis;
+
+    AlexaLoadRunner(final AlexaClient client, final AlexaLoadProfile loadProfile) {
+        Validate.notNull(loadProfile, "Load profile must not be null.");
+        this.client = client;
+        this.loadProfile = loadProfile;
+    }
+
+    public AlexaLoadProfile getLoadProfile() {
+        return loadProfile;
+    }
+
+    public long getSessionsStarted() {
+        return sessionsStarted.sum();
+    }
+
+    public long getSessionsSucceeded() {
+        return sessionsSucceeded.sum();
+    }
+
+    public long getSessionsFailed() {
+        return sessionsFailed.sum();
+    }
+
+    /**
+     * The longest time a session had to wait for a free worker after its intended start time.
+     * A high value indicates the profile asks for more parallel sessions than threads are available.
+     * @return milliseconds
+     */
+    public long getMaxStartDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxStartDelayNanos.get());
+    }
+
+    /**
+     * Tells if all sessions of the run succeeded.
+     * @return True, if no session failed
+     */
+    public boolean isPassed() {
+        return getSessionsFailed() == 0;
+    }
+
+    /**
+     * One line summing up the run.
+     * @return summary of the run
+     */
+    public String getSummary() {
+        return String.format("load run in %1$s ms. %2$s sessions started, %3$s succeeded, %4$s failed. Max start delay was %5$s ms.",
+                runMillis, getSessionsStarted(), getSessionsSucceeded(), getSessionsFailed(), getMaxStartDelayMillis());
+    }
+
+    /**
+     * Runs the load profile and blocks until the last session that was started has finished.
+     * @param conversation the conversation executed in each of the new sessions
+     * @return this runner holding the results of the run
+     */
+    public AlexaLoadRunner run(final Consumer<AlexaSession> conversation) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(loadProfile.getThreads(), loadProfile.getThreads(),
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new WorkerThreadFactory());
+        final long durationMillis = loadProfile.getDurationMillis();
+        log.info(String.format("[START] load run for %1$s ms with up to %2$s parallel sessions ...", durationMillis, loadProfile.getThreads()));
+
+        final long startNanos = System.nanoTime();
+        double arrivals = 0.0;
+        try {
+            for (long elapsedMillis = 0; elapsedMillis < durationMillis; elapsedMillis++) {
+                // sessions due in this millisecond according to the profile
+                arrivals += loadProfile.getRate(elapsedMillis) / 1000.0;
+                while (arrivals >= 1.0) {
+                    arrivals -= 1.0;
+                    final long intendedStartNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(elapsedMillis);
+                    parkUntil(intendedStartNanos);
+                    executor.execute(() -> execute(conversation, intendedStartNanos));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        awaitTermination(executor);
+
+        runMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        log.info(String.format("[DONE] %s", getSummary()));
+        client.logLatencyReport();
+        return this;
+    }
+
+    private void execute(final Consumer<AlexaSession> conversation, final long intendedStartNanos) {
+        maxStartDelayNanos.accumulate(System.nanoTime() - intendedStartNanos);
+        sessionsStarted.increment();
+        AlexaSession session = null;
+        try {
+            session = client.startSession(loadProfile.isQuiet());
+            conversation.accept(session);
+            sessionsSucceeded.increment();
+        } catch (final RuntimeException e) {
+            sessionsFailed.increment();
+            log.error(String.format("[ERROR] Session failed. %s", e.getMessage()));
+        } finally {
+            if (session != null) {
+                session.trackInFlight(false);
+            }
+            // measured from the intended rather than the actual start so queueing delays are not hidden
+            client.getLatencyRecorder().record(SESSION_LATENCY_KEY, System.nanoTime() - intendedStartNanos);
+        }
+    }
+
+    private static void parkUntil(final long deadlineNanos) {
+        long remainingNanos;
+        while ((remainingNanos = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remainingNanos);
+        }
+    }
+
+    private static void awaitTermination(final ThreadPoolExecutor executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("[DEBUG] Waiting for %s sessions to finish.", executor.getActiveCount() + executor.getQueue().size()));
+                }
+            }
+        } catch (final InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Load run was interrupted.", e);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "alexa-load-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
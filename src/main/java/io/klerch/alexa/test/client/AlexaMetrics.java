@@ -0,0 +1,278 @@
+package io.klerch.alexa.test.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import javax.management.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics registry counts what is going on while tests are running, e.g. requests by type and intent,
+ * errors, assertions, open sessions, token refreshes, SMAPI polls and retries. Timers keep a histogram of latencies.
+ * There is one registry per process which can be watched over JMX as MBean io.klerch.alexa.test:type=AlexaMetrics
+ * and written to a snapshot file periodically.
+ */
+public class AlexaMetrics {
+    private final static Logger log = Logger.getLogger(AlexaMetrics.class);
+    public static final String OBJECT_NAME = "io.klerch.alexa.test:type=AlexaMetrics";
+    public static final String REQUESTS = "requests";
+    public static final String ERRORS = "errors";
+    public static final String ENDPOINTS = "endpoints";
+    public static final String ASSERTIONS_PASSED = "assertions.passed";
+    public static final String ASSERTIONS_FAILED = "assertions.failed";
+    public static final String SESSIONS_STARTED = "sessions.started";
+    public static final String SESSIONS_IN_FLIGHT = "sessions.inFlight";
+    public static final String LWA_TOKEN_REFRESHES = "lwa.tokenRefreshes";
+    public static final String LWA_TOKEN_REFRESH_FAILURES = "lwa.tokenRefreshFailures";
+    public static final String SMAPI = "smapi";
+    public static final String SMAPI_POLLS = "smapi.polls";
+    public static final String SMAPI_THROTTLED = "smapi.throttled";
+    public static final String RETRIES = "retries";
+    public static final String RETRIES_BUDGET_EXHAUSTED = "retries.budgetExhausted";
+    public static final String CIRCUIT_OPENED = "circuit.opened";
+    public static final String CIRCUIT_REJECTED = "circuit.rejected";
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_SECONDS = 10;
+    private static final double[] PERCENTILES = { 50.0, 99.0 };
+    private static final AlexaMetrics instance = new AlexaMetrics();
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final AlexaLatencyRecorder timers = new AlexaLatencyRecorder();
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final Map<Path, ScheduledFuture<?>> snapshotWriters = new HashMap<>();
+    private ScheduledExecutorService snapshotScheduler;
+    private List<Object> configuration;
+
+    AlexaMetrics() {
+    }
+
+    /**
+     * The registry all metrics of this process are recorded in.
+     * @return metrics registry
+     */
+    public static AlexaMetrics getInstance() {
+        return instance;
+    }
+
+    public void increment(final String name) {
+        add(name, 1);
+    }
+
+    public void decrement(final String name) {
+        add(name, -1);
+    }
+
+    public void add(final String name, final long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Records a latency with the timer of the given name.
+     * @param name name of the timer
+     * @param latencyNanos latency in nanoseconds
+     */
+    public void record(final String name, final long latencyNanos) {
+        timers.record(name, latencyNanos);
+    }
+
+    /**
+     * Current value of a counter or the number of latencies recorded by a timer.
+     * @param name name of the counter or timer
+     * @return count, 0 if nothing was recorded under this name
+     */
+    public long getCount(final String name) {
+        final LongAdder counter = counters.get(name);
+        if (counter != null) {
+            return counter.sum();
+        }
+        final Histogram timer = timers.getHistogram(name);
+        return timer != null ? timer.getTotalCount() : 0;
+    }
+
+    /**
+     * All metrics ordered by name. Counters come with their value, timers with their count and
+     * mean, p50, p99 and max latency in milliseconds.
+     * @return current values of all metrics
+     */
+    public SortedMap<String, Number> getSnapshot() {
+        final SortedMap<String, Number> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        timers.getHistograms().forEach((name, histogram) -> {
+            snapshot.put(name + ".count", histogram.getTotalCount());
+            snapshot.put(name + ".meanMillis", histogram.getMean() / 1_000_000.0);
+            for (final double percentile : PERCENTILES) {
+                snapshot.put(String.format("%s.p%.0fMillis", name, percentile), histogram.getValueAtPercentile(percentile) / 1_000_000.0);
+            }
+            snapshot.put(name + ".maxMillis", histogram.getMaxValue() / 1_000_000.0);
+        });
+        return snapshot;
+    }
+
+    /**
+     * Registers the registry with the platform MBean server. Registering it more than once has no effect.
+     */
+    public synchronized void registerMBean() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new MetricsMBean(), objectName);
+                log.info(String.format("[INFO] Metrics are exposed over JMX as %s.", OBJECT_NAME));
+            }
+        } catch (final JMException e) {
+            final String msg = String.format("Could not expose metrics over JMX. %s", e.getMessage());
+            log.error(String.format("[ERROR] %s", msg));
+            throw new RuntimeException(msg, e);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a JSON file in the given interval and once more when the process ends.
+     * The file is replaced as a whole, so readers never see a partially written snapshot. Calling this
+     * again for the same file changes its interval.
+     * @param file the snapshot file
+     * @param period interval between two snapshots
+     * @param unit unit of period
+     */
+    public synchronized void writeSnapshots(final Path file, final long period, final TimeUnit unit) {
+        Validate.notNull(file, "Snapshot file must not be null.");
+        Validate.isTrue(period > 0, "Interval of snapshots must be greater than zero.");
+
+        if (snapshotScheduler == null) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "alexa-metrics-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(this::writeAllSnapshots, "alexa-metrics-final-snapshot"));
+        }
+        Optional.ofNullable(snapshotWriters.remove(file)).ifPresent(writer -> writer.cancel(false));
+        snapshotWriters.put(file, snapshotScheduler.scheduleAtFixedRate(() -> writeSnapshot(file), period, period, unit));
+    }
+
+    /**
+     * Applies the metrics node of a YAML script: jmx set to true registers the MBean, file gives
+     * the snapshot file written every interval seconds (defaults to 10). As there is one registry per
+     * process the first script configuring it wins. Scripts running in the same process, e.g. in a suite,
+     * may repeat the very same metrics node but are rejected if they configure it differently.
+     * @param yMetrics the metrics node
+     */
+    synchronized void configure(final HashMap<Object, Object> yMetrics) {
+        final boolean jmx = Boolean.parseBoolean(String.valueOf(yMetrics.get("jmx")));
+        final Optional<String> file = Optional.ofNullable(yMetrics.get("file")).map(Object::toString);
+        final long interval = Optional.ofNullable(yMetrics.get("interval")).map(Object::toString).map(Long::valueOf).orElse(DEFAULT_SNAPSHOT_INTERVAL_SECONDS);
+        final List<Object> requested = Arrays.asList(jmx, file.orElse(null), file.isPresent() ? interval : null);
+
+        if (configuration != null) {
+            if (!configuration.equals(requested)) {
+                final String msg = String.format("Metrics are configured once per process and already are with jmx, file and interval set to %1$s. The metrics node asks for %2$s.", configuration, requested);
+                log.error(String.format("[ERROR] %s", msg));
+                throw new RuntimeException(msg);
+            }
+            return;
+        }
+        configuration = requested;
+
+        if (jmx) {
+            registerMBean();
+        }
+        file.ifPresent(f -> writeSnapshots(Paths.get(f), interval, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Writes the current snapshot to a JSON file.
+     * @param file the snapshot file
+     */
+    public void writeSnapshot(final Path file) {
+        final Map<String, Object> content = new LinkedHashMap<>();
+        content.put("timestamp", System.currentTimeMillis());
+        content.put("metrics", getSnapshot());
+        try {
+            final Path dir = file.toAbsolutePath().getParent();
+            final Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            mapper.writeValue(tempFile.toFile(), content);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            log.warn(String.format("[WARN] Could not write metrics snapshot to %s. %s", file, e.getMessage()));
+        }
+    }
+
+    private synchronized void writeAllSnapshots() {
+        snapshotWriters.keySet().forEach(this::writeSnapshot);
+    }
+
+    /**
+     * Resets all counters and timers. Sessions still in flight are kept.
+     */
+    public void reset() {
+        counters.keySet().removeIf(name -> !SESSIONS_IN_FLIGHT.equals(name));
+        timers.clear();
+    }
+
+    /**
+     * Exposes all metrics of the snapshot as read-only attributes. As new metrics show up while tests
+     * are running the attributes are determined whenever the MBean is queried.
+     */
+    private class MetricsMBean implements DynamicMBean {
+        @Override
+        public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+            final Number value = getSnapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only.");
+        }
+
+        @Override
+        public AttributeList getAttributes(final String[] attributes) {
+            final SortedMap<String, Number> snapshot = getSnapshot();
+            final AttributeList list = new AttributeList();
+            for (final String attribute : attributes) {
+                if (snapshot.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, snapshot.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(final AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(final String actionName, final Object[] params, final String[] signature) throws ReflectionException {
+            if ("reset".equals(actionName)) {
+                reset();
+                return null;
+            }
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            getSnapshot().forEach((name, value) -> attributes.add(
+                    new MBeanAttributeInfo(name, value.getClass().getName(), name, true, false, false)));
+            final MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Resets all counters and timers except sessions in flight.",
+                    new MBeanParameterInfo[0], void.class.getName(), MBeanOperationInfo.ACTION);
+            return new MBeanInfo(AlexaMetrics.class.getName(), "Metrics of the Alexa Skills Kit Tester.",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] { reset }, null);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.klerch.alexa.test.client;
+
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+
+import java.util.Optional;
+
+/**
+ * A request fired at the skill or an assertion validated against its response. Events hold a summary
+ * rather than the request and response, so reporters can queue many of them at little memory.
+ */
+public class AlexaReportEvent {
+    private final Type type;
+    private final long timestamp;
+    private final String sessionId;
+    private final String request;
+    private final long latencyMicros;
+    private final int retries;
+    private final Boolean shouldEndSession;
+    private final String outputSpeech;
+    private final String error;
+    private final String assertion;
+    private final boolean passed;
+
+    public enum Type {
+        REQUEST, ASSERTION
+    }
+
+    AlexaReportEvent(final Type type, final String sessionId, final String request, final long latencyMicros, final int retries,
+                     final Boolean shouldEndSession, final String outputSpeech, final String error, final String assertion, final boolean passed) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.sessionId = sessionId;
+        this.request = request;
+        this.latencyMicros = latencyMicros;
+        this.retries = retries;
+        this.shouldEndSession = shouldEndSession;
+        this.outputSpeech = outputSpeech;
+        this.error = error;
+        this.assertion = assertion;
+        this.passed = passed;
+    }
+
+    /**
+     * An event for a request which returned or failed.
+     * @param request the request
+     * @param response the response, null if there is none
+     * @param latencyNanos time the endpoint took to return
+     * @param failure the reason the request failed, null if it succeeded
+     * @return event
+     */
+    public static AlexaReportEvent request(final AlexaRequest request, final AlexaResponse response, final long latencyNanos, final Throwable failure) {
+        final Optional<AlexaResponse> r = Optional.ofNullable(response).filter(o -> !o.isEmpty());
+        return new AlexaReportEvent(Type.REQUEST, request.getSession().getSessionId(), AlexaLatencyRecorder.getKey(request), latencyNanos / 1000, request.getRetries(),
+                r.flatMap(AlexaResponse::getShouldEndSession).orElse(null),
+                r.flatMap(AlexaResponse::getOutputSpeech).orElse(null),
+                failure != null ? String.valueOf(failure.getMessage()) : null, null, failure == null);
+    }
+
+    /**
+     * An event for an assertion validated against a response.
+     * @param response the response
+     * @param assertion the assertion
+     * @param passed true if the assertion holds
+     * @return event
+     */
+    public static AlexaReportEvent assertion(final AlexaResponse response, final String assertion, final boolean passed) {
+        final AlexaRequest request = response.getRequest();
+        return new AlexaReportEvent(Type.ASSERTION, request.getSession().getSessionId(), AlexaLatencyRecorder.getKey(request), 0, 0,
+                null, null, null, assertion, passed);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Time the event occurred.
+     * @return milliseconds since epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * The type of request, followed by the intent name for intent requests, e.g. IntentRequest:AMAZON.HelpIntent
+     * @return request type
+     */
+    public String getRequest() {
+        return request;
+    }
+
+    /**
+     * Time the endpoint took to return, 0 for assertions.
+     * @return microseconds
+     */
+    public long getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    /**
+     * Number of times the request was fired again after a transient failure, 0 for assertions.
+     * @return retries
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * shouldEndSession of the response.
+     * @return shouldEndSession, null if there is no response
+     */
+    public Boolean getShouldEndSession() {
+        return shouldEndSession;
+    }
+
+    /**
+     * SSML or text of the response's output speech.
+     * @return output speech, null if there is none
+     */
+    public String getOutputSpeech() {
+        return outputSpeech;
+    }
+
+    /**
+     * Message of the error a request failed with.
+     * @return error message, null if the request did not fail
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * The assertion validated.
+     * @return assertion, null for requests
+     */
+    public String getAssertion() {
+        return assertion;
+    }
+
+    /**
+     * Tells if the request returned or the assertion holds.
+     * @return True, if passed
+     */
+    public boolean isPassed() {
+        return passed;
+    }
+}
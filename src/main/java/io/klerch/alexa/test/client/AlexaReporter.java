@@ -0,0 +1,21 @@
+package io.klerch.alexa.test.client;
+
+/**
+ * A reporter receives an event for each request fired by a client and each assertion validated against
+ * a response as they happen. Reporters are called by the threads running the conversations, so they
+ * should hand events over quickly rather than writing them right away, see AlexaAsyncReporter.
+ */
+public interface AlexaReporter extends AutoCloseable {
+    /**
+     * Receives a request or assertion event.
+     * @param event the event
+     */
+    void report(final AlexaReportEvent event);
+
+    /**
+     * Writes all events received so far and releases the reporter's resources. Events received
+     * after the reporter was closed are ignored.
+     */
+    @Override
+    void close();
+}
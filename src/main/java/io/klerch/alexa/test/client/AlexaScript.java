@@ -0,0 +1,234 @@
+package io.klerch.alexa.test.client;
+
+import io.klerch.alexa.test.response.AlexaAssertion;
+import io.klerch.alexa.test.response.AlexaReference;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A conversation script compiled from the Launch node of a YAML script. The script is validated and
+ * compiled once and can then be executed by many sessions at the same time. Conversation steps
+ * referenced more than once (YAML anchors) are compiled only once, also when they reference each other.
+ */
+public class AlexaScript {
+    private final Step launch;
+    private final List<Step> steps;
+
+    private AlexaScript(final Step launch, final List<Step> steps) {
+        this.launch = launch;
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Compiles the Launch node as read from a YAML script.
+     * @param yLaunch the Launch node
+     * @return the compiled script
+     */
+    public static AlexaScript compile(final Object yLaunch) {
+        final Object launch = yLaunch instanceof Optional<?> ? ((Optional<?>)yLaunch).orElse(null) : yLaunch;
+        if (!(launch instanceof List)) {
+            throw new RuntimeException("[ERROR] Launch node is of unexpected type. It needs to be a list of conversation step elements.");
+        }
+        final Compiler compiler = new Compiler();
+        return new AlexaScript(compiler.compile((List<?>)launch), compiler.ordered);
+    }
+
+    Step getLaunch() {
+        return launch;
+    }
+
+    /**
+     * All steps of the script in the order they were compiled, starting with the launch step.
+     * @return compiled steps
+     */
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Explores all branches of the conversation, see AlexaScriptExplorer.
+     * @param client the client firing the requests
+     * @return explorer
+     */
+    public AlexaScriptExplorer.AlexaScriptExplorerBuilder explore(final AlexaClient client) {
+        return AlexaScriptExplorer.create(client, this);
+    }
+
+    /**
+     * Runs the conversation in the given session.
+     * @param session the session
+     */
+    public void execute(final AlexaSession session) {
+        try {
+            launch.execute(session);
+        } finally {
+            // the conversation is over even if the skill left the session open
+            session.trackInFlight(false);
+        }
+    }
+
+    private static class Compiler {
+        private final Map<List<?>, Step> steps = new IdentityHashMap<>();
+        // steps are numbered in the order they are compiled
+        private final List<Step> ordered = new ArrayList<>();
+
+        private Step compile(final List<?> assets) {
+            // YAML anchors result in the very same list object, so it is compiled once and may even be referenced by itself
+            final Step compiled = steps.get(assets);
+            if (compiled != null) {
+                return compiled;
+            }
+
+            String intentName = null;
+            String utterance = null;
+            final Map<String, Object> slots = new LinkedHashMap<>();
+            final List<AlexaAssertion> assertions = new ArrayList<>();
+            final Map<String, List<?>> conditions = new LinkedHashMap<>();
+            final List<List<?>> followUps = new ArrayList<>();
+
+            for (final Object asset : assets) {
+                // if asset is not a key-value treat it as an assertion
+                if (asset instanceof String) {
+                    assertions.add(AlexaAssertion.create(asset.toString()));
+                }
+                // if asset is a map it could either be a parameter or a condition with reference
+                else if (asset instanceof Map) {
+                    for (final Map.Entry<?, ?> kv : ((Map<?, ?>)asset).entrySet()) {
+                        final String key = String.valueOf(kv.getKey());
+                        final Object value = kv.getValue();
+                        if (value instanceof String) {
+                            if (StringUtils.equalsIgnoreCase(key, "intent")) {
+                                intentName = value.toString();
+                            } else if (StringUtils.equalsIgnoreCase(key, "utterance")) {
+                                utterance = value.toString();
+                            } else if (!slots.containsKey(key)) {
+                                // check if value assignment is actually a json expression resolved with the last response
+                                slots.put(key, value.toString().startsWith("$") ? AlexaReference.create(value.toString()) : value);
+                            }
+                        } else if (value instanceof List) {
+                            conditions.putIfAbsent(key, (List<?>)value);
+                        } else {
+                            throw new RuntimeException(String.format("[ERROR] Element '%s' of a conversation step has no valid value. Either assign a slot value or a conversation step to follow up with.", key));
+                        }
+                    }
+                }
+                else if (asset instanceof List) {
+                    followUps.add((List<?>)asset);
+                }
+                else {
+                    throw new RuntimeException(String.format("[ERROR] Element '%s' of a conversation step is of unexpected type.", asset));
+                }
+            }
+
+            final Step step = new Step(ordered.size(), intentName, utterance, slots, assertions);
+            steps.put(assets, step);
+            ordered.add(step);
+            final List<Condition> compiledConditions = new ArrayList<>();
+            conditions.forEach((condition, followUp) -> compiledConditions.add(new Condition(AlexaAssertion.create(condition), compile(followUp))));
+            final List<Step> compiledFollowUps = new ArrayList<>();
+            followUps.forEach(followUp -> compiledFollowUps.add(compile(followUp)));
+            step.link(compiledConditions, compiledFollowUps);
+            return step;
+        }
+    }
+
+    static class Condition {
+        final AlexaAssertion assertion;
+        final Step followUp;
+
+        private Condition(final AlexaAssertion assertion, final Step followUp) {
+            this.assertion = assertion;
+            this.followUp = followUp;
+        }
+    }
+
+    static class Step {
+        final int id;
+        private final String intentName;
+        private final String utterance;
+        // slot values are either constants or references resolved with the last response
+        private final Map<String, Object> slots;
+        private final List<AlexaAssertion> assertions;
+        // linked by the compiler only once the follow-ups are compiled, as steps may reference each other
+        List<Condition> conditions = Collections.emptyList();
+        List<Step> followUps = Collections.emptyList();
+
+        private Step(final int id, final String intentName, final String utterance, final Map<String, Object> slots, final List<AlexaAssertion> assertions) {
+            this.id = id;
+            this.intentName = intentName;
+            this.utterance = utterance;
+            this.slots = Collections.unmodifiableMap(slots);
+            this.assertions = Collections.unmodifiableList(assertions);
+        }
+
+        private void link(final List<Condition> conditions, final List<Step> followUps) {
+            this.conditions = Collections.unmodifiableList(conditions);
+            this.followUps = Collections.unmodifiableList(followUps);
+        }
+
+        private void execute(final AlexaSession session) {
+            final AlexaResponse response = fire(session);
+
+            // go through all conditions
+            for (final Condition condition : conditions) {
+                // if condition met
+                if (response.is(condition.assertion)) {
+                    condition.followUp.execute(session);
+                }
+            }
+
+            // follow up with standalone anchors
+            for (final Step followUp : followUps) {
+                followUp.execute(session);
+            }
+        }
+
+        /**
+         * Fires the request of this step and validates its assertions without following up.
+         * @param session the session
+         * @return skill's response
+         */
+        AlexaResponse fire(final AlexaSession session) {
+            // fire request
+            final AlexaResponse response =
+                    StringUtils.isNotBlank(intentName) ? session.intent(intentName, resolveSlots(session)) :
+                            StringUtils.isNotBlank(utterance) ? session.say(utterance) : session.launch();
+
+            // go through assertions
+            for (final AlexaAssertion assertion : assertions) {
+                response.assertThat(assertion);
+            }
+            return response;
+        }
+
+        @Override
+        public String toString() {
+            return StringUtils.isNotBlank(intentName) ? String.format("#%1$s intent '%2$s'", id, intentName) :
+                    StringUtils.isNotBlank(utterance) ? String.format("#%1$s utterance '%2$s'", id, utterance) : String.format("#%s launch", id);
+        }
+
+        private Map<String, Object> resolveSlots(final AlexaSession session) {
+            final Map<String, Object> params = new LinkedHashMap<>(slots.size());
+            slots.forEach((slotName, value) -> {
+                if (value instanceof AlexaReference) {
+                    // try resolve json expression with last response
+                    final AlexaReference reference = (AlexaReference)value;
+                    params.put(slotName, Optional.ofNullable(session.getLastResponse())
+                            .flatMap(lr -> lr.get(reference))
+                            .orElseThrow(() -> new RuntimeException(reference + " could not be resolved for slot " + slotName)));
+                } else {
+                    params.put(slotName, value);
+                }
+            });
+            return params;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package io.klerch.alexa.test.client;
+
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The explorer treats a conversation script as a graph of steps connected by conditions and follow-ups and drives
+ * every branch of it rather than only those the skill's responses lead to. Whenever a condition is not met, the
+ * explorer forks the session and follows the condition anyway in a branch of its own (forced branch), e.g. to
+ * answer a yes/no question with both yes and no. Each condition is forced once at most. Branches run in parallel
+ * and continue from the state of the session they were forked from, so the conversation up to a fork is fired
+ * only once. The result reports each branch and which steps and edges were covered.
+ */
+public class AlexaScriptExplorer {
+    private final static Logger log = Logger.getLogger(AlexaScriptExplorer.class);
+    private final static int DEFAULT_MAX_DEPTH = 100;
+    private final AlexaClient client;
+    private final AlexaScript script;
+    private final int parallelism;
+    private final int maxDepth;
+    private final boolean forceBranches;
+
+    /**
+     * Where to continue in a step once the request of a follow-up step and everything that followed it is done.
+     * Frames are never changed, so forked branches can share the frames of their common parent steps.
+     */
+    private static class Frame {
+        private final AlexaScript.Step step;
+        private final AlexaResponse response;
+        // conditions first, then follow-ups
+        private final int nextEdge;
+        private final Frame parent;
+
+        private Frame(final AlexaScript.Step step, final AlexaResponse response, final int nextEdge, final Frame parent) {
+            this.step = step;
+            this.response = response;
+            this.nextEdge = nextEdge;
+            this.parent = parent;
+        }
+
+        private Frame advance() {
+            return new Frame(step, response, nextEdge + 1, parent);
+        }
+    }
+
+    private class Exploration {
+        private final ExecutorService executor;
+        private final Phaser pending = new Phaser(1);
+        private final Set<String> coveredNodes = ConcurrentHashMap.newKeySet();
+        private final Set<String> coveredEdges = ConcurrentHashMap.newKeySet();
+        private final Set<String> forcedEdges = ConcurrentHashMap.newKeySet();
+        private final Queue<AlexaExplorationResult.BranchResult> results = new ConcurrentLinkedQueue<>();
+
+        private Exploration(final ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        private void submit(final AlexaSession session, final AlexaScript.Step step, final Frame parent, final int depth, final boolean forced) {
+            pending.register();
+            executor.execute(() -> {
+                try {
+                    explore(session, step, parent, depth, forced);
+                } finally {
+                    pending.arriveAndDeregister();
+                }
+            });
+        }
+
+        private void explore(AlexaSession session, AlexaScript.Step step, Frame frame, int depth, final boolean forced) {
+            final List<String> path = new ArrayList<>();
+            try {
+                if (session == null) {
+                    session = client.startSession();
+                }
+                while (true) {
+                    if (step != null) {
+                        if (depth >= maxDepth) {
+                            log.warn(String.format("[WARN] stopped branch %1$s after %2$s requests.", path, depth));
+                            results.add(new AlexaExplorationResult.BranchResult(path, forced, true, null));
+                            return;
+                        }
+                        path.add(step.toString());
+                        coveredNodes.add(step.toString());
+                        final AlexaResponse response = step.fire(session);
+                        frame = new Frame(step, response, 0, frame);
+                        step = null;
+                        depth++;
+                        continue;
+                    }
+                    if (frame == null) {
+                        results.add(new AlexaExplorationResult.BranchResult(path, forced, false, null));
+                        return;
+                    }
+                    final List<AlexaScript.Condition> conditions = frame.step.conditions;
+                    if (frame.nextEdge < conditions.size()) {
+                        final AlexaScript.Condition condition = conditions.get(frame.nextEdge);
+                        final String edge = toEdge(frame.step, condition);
+                        frame = frame.advance();
+                        if (frame.response.is(condition.assertion)) {
+                            coveredEdges.add(edge);
+                            step = condition.followUp;
+                        } else if (forceBranches && forcedEdges.add(edge)) {
+                            // follow the condition in a fork while this branch goes on as if it was not met
+                            log.info(String.format("[INFO] forcing branch %s", edge));
+                            coveredEdges.add(edge);
+                            submit(session.fork(), condition.followUp, frame, depth, true);
+                        }
+                    } else if (frame.nextEdge < conditions.size() + frame.step.followUps.size()) {
+                        final AlexaScript.Step followUp = frame.step.followUps.get(frame.nextEdge - conditions.size());
+                        coveredEdges.add(toEdge(frame.step, followUp));
+                        frame = frame.advance();
+                        step = followUp;
+                    } else {
+                        frame = frame.parent;
+                    }
+                }
+            } catch (final RuntimeException | AssertionError e) {
+                // isolate the failure to this branch and carry on with the others
+                log.error(String.format("[FAILED] branch %1$s. %2$s", path, e.getMessage()));
+                results.add(new AlexaExplorationResult.BranchResult(path, forced, false, e));
+            } finally {
+                if (session != null) {
+                    session.trackInFlight(false);
+                }
+            }
+        }
+    }
+
+    AlexaScriptExplorer(final AlexaScriptExplorerBuilder builder) {
+        this.client = builder.client;
+        this.script = builder.script;
+        this.parallelism = builder.parallelism;
+        this.maxDepth = builder.maxDepth;
+        this.forceBranches = builder.forceBranches;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public boolean isForceBranches() {
+        return forceBranches;
+    }
+
+    /**
+     * Explores the script starting with a new session and blocks until the last branch has finished.
+     * @return results of all branches and the coverage of the script
+     */
+    public AlexaExplorationResult run() {
+        final Set<String> nodes = new LinkedHashSet<>();
+        final Set<String> edges = new LinkedHashSet<>();
+        script.getSteps().forEach(step -> {
+            nodes.add(step.toString());
+            step.conditions.forEach(condition -> edges.add(toEdge(step, condition)));
+            step.followUps.forEach(followUp -> edges.add(toEdge(step, followUp)));
+        });
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-explorer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info(String.format("[START] exploring %1$s steps and %2$s edges with up to %3$s branches in parallel ...", nodes.size(), edges.size(), parallelism));
+
+        final long startNanos = System.nanoTime();
+        final Exploration exploration = new Exploration(executor);
+        try {
+            exploration.submit(null, script.getLaunch(), null, 0, false);
+            exploration.pending.arriveAndAwaitAdvance();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final List<AlexaExplorationResult.BranchResult> branches = new ArrayList<>(exploration.results);
+        // the natural branch first, forced branches in the order of their paths
+        branches.sort(Comparator.comparing(AlexaExplorationResult.BranchResult::isForced).thenComparing(b -> String.join(" > ", b.getPath())));
+        final Set<String> coveredNodes = new LinkedHashSet<>(nodes);
+        coveredNodes.retainAll(exploration.coveredNodes);
+        final Set<String> coveredEdges = new LinkedHashSet<>(edges);
+        coveredEdges.retainAll(exploration.coveredEdges);
+
+        final AlexaExplorationResult result = new AlexaExplorationResult(branches, nodes, coveredNodes, edges, coveredEdges,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        log.info(String.format("[DONE] exploring %1$s branches in %2$s ms. %3$s failed, covered %4$s of %5$s steps and %6$s of %7$s edges.",
+                branches.size(), result.getDurationMillis(), result.getFailedCount(), coveredNodes.size(), nodes.size(), coveredEdges.size(), edges.size()));
+        return result;
+    }
+
+    private static String toEdge(final AlexaScript.Step from, final AlexaScript.Condition condition) {
+        return String.format("#%1$s -> %2$s if %3$s", from.id, condition.followUp, condition.assertion.getExpression());
+    }
+
+    private static String toEdge(final AlexaScript.Step from, final AlexaScript.Step followUp) {
+        return String.format("#%1$s -> %2$s", from.id, followUp);
+    }
+
+    public static AlexaScriptExplorerBuilder create(final AlexaClient client, final AlexaScript script) {
+        return new AlexaScriptExplorerBuilder(client, script);
+    }
+
+    static AlexaScriptExplorerBuilder create(final HashMap<Object, Object> yExplore) {
+        final AlexaScriptExplorerBuilder builder = new AlexaScriptExplorerBuilder(null, null);
+        Optional.ofNullable(yExplore.get("force")).map(Object::toString).map(Boolean::valueOf).ifPresent(builder::withForceBranches);
+        Optional.ofNullable(yExplore.get("parallelism")).map(Object::toString).map(Integer::valueOf).ifPresent(builder::withParallelism);
+        Optional.ofNullable(yExplore.get("maxDepth")).map(Object::toString).map(Integer::valueOf).ifPresent(builder::withMaxDepth);
+        return builder;
+    }
+
+    public static class AlexaScriptExplorerBuilder {
+        AlexaClient client;
+        AlexaScript script;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int maxDepth = DEFAULT_MAX_DEPTH;
+        boolean forceBranches = true;
+
+        AlexaScriptExplorerBuilder(final AlexaClient client, final AlexaScript script) {
+            this.client = client;
+            this.script = script;
+        }
+
+        AlexaScriptExplorerBuilder withClient(final AlexaClient client, final AlexaScript script) {
+            this.client = client;
+            this.script = script;
+            return this;
+        }
+
+        public AlexaScriptExplorerBuilder withParallelism(final int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Number of requests after which a branch is stopped, so branches forced into a loop come to an end.
+         * Defaults to 100.
+         * @param maxDepth maximum number of requests per branch
+         * @return builder
+         */
+        public AlexaScriptExplorerBuilder withMaxDepth(final int maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Follows conditions not met by the skill's response in a branch of their own. Defaults to true.
+         * Without forced branches only the path the skill's responses lead to is explored.
+         * @param forceBranches false to follow conditions only if they are met
+         * @return builder
+         */
+        public AlexaScriptExplorerBuilder withForceBranches(final boolean forceBranches) {
+            this.forceBranches = forceBranches;
+            return this;
+        }
+
+        public AlexaScriptExplorer build() {
+            Validate.notNull(client, "Client must not be null.");
+            Validate.notNull(script, "Script must not be null.");
+            Validate.isTrue(parallelism > 0, "Parallelism must be greater than zero.");
+            Validate.isTrue(maxDepth > 0, "Maximum depth must be greater than zero.");
+            return new AlexaScriptExplorer(this);
+        }
+    }
+}
@@ -6,10 +6,10 @@ import com.amazon.speech.speechlet.Context;
 import com.amazon.speech.speechlet.Session;
 import com.amazon.speech.speechlet.SessionEndedRequest;
 import com.amazon.speech.speechlet.interfaces.system.SystemState;
+import io.klerch.alexa.test.client.endpoint.AlexaReplayEndpoint;
 import io.klerch.alexa.test.client.endpoint.AlexaSimulationApiEndpoint;
 import io.klerch.alexa.test.request.*;
 import io.klerch.alexa.test.response.AlexaResponse;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.log4j.Logger;
@@ -17,47 +17,157 @@ import org.w3c.dom.Element;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 /**
  * The session actor manages a conversation within a single Alexa session by
- * persisting session state.
+ * persisting session state. A session is meant to be driven by one thread at a time
+ * whereas many sessions can share the same client concurrently. Session attributes are
+ * never changed in place but replaced with each response, so snapshots and forks of a
+ * session share them until they receive a response of their own.
  */
 public class AlexaSession extends AlexaActor {
     private final static Logger log = Logger.getLogger(AlexaClient.class);
-    final Session session;
-    boolean sessionClosed;
+    volatile Session session;
+    volatile boolean sessionClosed;
+    volatile long lastExecutionTimeMillis;
+    private volatile AlexaResponse lastResponse;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+    private final boolean quiet;
 
     public static String generateSessionId() {
         return String.format("SessionId.%s", UUID.randomUUID());
     }
 
     public AlexaSession(final AlexaClient client, final Session session) {
+        this(client, session, false);
+    }
+
+    AlexaSession(final AlexaClient client, final Session session, final boolean quiet) {
+        this(client, withAttributes(session, withDebugFlag(client, new LinkedHashMap<>(session.getAttributes()))), null, false, quiet);
+    }
+
+    AlexaSession(final AlexaSessionSnapshot snapshot) {
+        this(snapshot.getClient(), snapshot.session, snapshot.lastResponse, snapshot.sessionClosed, snapshot.quiet);
+    }
+
+    private AlexaSession(final AlexaClient client, final Session session, final AlexaResponse lastResponse, final boolean sessionClosed, final boolean quiet) {
         super(client);
-        this.sessionClosed = false;
         this.session = session;
-        // if debug flag is set add it to the session attributes
-        this.getClient().getDebugFlagSessionAttributeName().ifPresent(name -> {
-            this.session.getAttributes().putIfAbsent(name, true);
-        });
+        this.lastResponse = lastResponse;
+        this.sessionClosed = sessionClosed;
+        this.quiet = quiet;
+        AlexaMetrics.getInstance().increment(AlexaMetrics.SESSIONS_STARTED);
+        trackInFlight(!sessionClosed);
     }
 
     public AlexaSession(final AlexaClient client) {
-        this(client, Session.builder()
+        this(client, false);
+    }
+
+    /**
+     * Starts a new session.
+     * @param client the client to use
+     * @param quiet true to not trace requests and responses of the session, see AlexaTrace
+     */
+    AlexaSession(final AlexaClient client, final boolean quiet) {
+        this(client, createSession(client), quiet);
+
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] session start request with sessionId '%s' ...", this.session.getSessionId()));
+        }
+        client.fire(new AlexaSessionStartedRequest(this));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info("[DONE] session start request.");
+        }
+    }
+
+    static Session createSession(final AlexaClient client) {
+        return createSession(client, false);
+    }
+
+    static Session createSession(final AlexaClient client, final boolean isNew) {
+        return Session.builder()
                 .withApplication(client.getApplication())
                 .withUser(client.getUser())
-                .withIsNew(false)
+                .withIsNew(isNew)
                 .withSessionId(generateSessionId())
                 .withAttributes(new LinkedHashMap<>())
-                .build());
+                .build();
+    }
 
-        log.info(String.format("\n[START] session start request with sessionId '%s' ...", this.session.getSessionId()));
-        client.fire(new AlexaSessionStartedRequest(this));
-        log.info("[DONE] session start request.");
+    private static Session withAttributes(final Session session, final Map<String, Object> attributes) {
+        return Session.builder()
+                .withApplication(session.getApplication())
+                .withUser(session.getUser())
+                .withIsNew(session.isNew())
+                .withSessionId(session.getSessionId())
+                .withAttributes(Collections.unmodifiableMap(attributes))
+                .build();
+    }
+
+    private static Map<String, Object> withDebugFlag(final AlexaClient client, final Map<String, Object> attributes) {
+        // if debug flag is set add it to the session attributes
+        client.getDebugFlagSessionAttributeName().ifPresent(name -> attributes.putIfAbsent(name, true));
+        return attributes;
     }
 
-    private Session getSessionWithIsNew() {
+    /**
+     * Captures the current state of this session. Taking a snapshot does not copy the session attributes.
+     * @return snapshot of the session
+     */
+    public synchronized AlexaSessionSnapshot snapshot() {
+        return new AlexaSessionSnapshot(client, session, lastResponse, sessionClosed, quiet);
+    }
+
+    /**
+     * A new session continuing from the current state of this one. It has the same sessionId and session
+     * attributes, but requests fired in the fork do not affect this session and vice versa.
+     * @return forked session
+     */
+    public AlexaSession fork() {
+        return snapshot().fork();
+    }
+
+    /**
+     * Requests and responses of a quiet session are not traced. Failures are logged regardless.
+     * @return True, if the session is quiet
+     */
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public String getSessionId() {
+        return this.session.getSessionId();
+    }
+
+    /**
+     * The session attributes as returned with the most recent response.
+     * @return read-only session attributes
+     */
+    public Map<String, Object> getSessionAttributes() {
+        return this.session.getAttributes();
+    }
+
+    /**
+     * The response received for the most recent request of this session.
+     * @return last response or null if no request returned a response yet
+     */
+    public AlexaResponse getLastResponse() {
+        return this.lastResponse;
+    }
+
+    /**
+     * The execution time of the most recent request of this session.
+     * @return milliseconds the endpoint took to return
+     */
+    public long getLastExecutionMillis() {
+        return this.lastExecutionTimeMillis;
+    }
+
+    private static Session getSessionWithIsNew(final Session session) {
         return Session.builder()
                 .withApplication(session.getApplication())
                 .withUser(session.getUser())
@@ -68,20 +178,22 @@ public class AlexaSession extends AlexaActor {
     }
 
     private void applySessionAttributes(final Map<String, Object> attributes) {
-        // reset attributes first
-        this.session.getAttributes().clear();
-        if (attributes != null) {
-            // apply attributes one by one
-            attributes.forEach(this.session::setAttribute);
-            // if debug flag is set add it to the session attributes
-            this.getClient().getDebugFlagSessionAttributeName().ifPresent(name -> {
-                attributes.putIfAbsent(name, true);
-            });
-        }
+        // replace rather than change the attributes as snapshots and forks may share them
+        this.session = withAttributes(session, attributes != null ? withDebugFlag(client, new LinkedHashMap<>(attributes)) : new LinkedHashMap<>());
+    }
+
+    private synchronized void clearSessionAttributes() {
+        this.session = withAttributes(session, new LinkedHashMap<>());
+    }
+
+    void verifyReadyFor(final AlexaRequest request) {
+        // ensure session is ready for another request (make an exception for session ended and launch requests)
+        Validate.isTrue(!sessionClosed || AlexaSessionEndedRequest.class.isInstance(request) || AlexaLaunchRequest.class.isInstance(request), "Session already closed and not ready for another request.");
     }
 
     @Override
     public SpeechletRequestEnvelope envelope(final AlexaRequest request) {
+        final Session session = this.session;
         final SystemState systemState = SystemState.builder()
                 .withUser(session.getUser())
                 .withDevice(client.device)
@@ -90,23 +202,26 @@ public class AlexaSession extends AlexaActor {
 
         final Context context = Context.builder().addState(systemState).build();
 
-        // ensure session is ready for another request (make an exception for session ended and launch requests)
-        Validate.isTrue(!sessionClosed || AlexaSessionEndedRequest.class.isInstance(request) || AlexaLaunchRequest.class.isInstance(request), "Session already closed and not ready for another request.");
+        verifyReadyFor(request);
         return SpeechletRequestEnvelope.builder()
                 .withRequest(request.getSpeechletRequest())
-                .withSession(request instanceof AlexaSessionStartedRequest ? getSessionWithIsNew() : session)
+                .withSession(request instanceof AlexaSessionStartedRequest ? getSessionWithIsNew(session) : session)
                 .withVersion(AlexaClient.VERSION)
                 .withContext(context)
                 .build();
     }
 
     @Override
-    public void exploitResponse(final AlexaResponse response) {
-        if (!response.isEmpty() && response.getResponseEnvelope() != null && response.getResponseEnvelope().getResponse() != null) {
-            // remember session closed
-            sessionClosed = response.getResponseEnvelope().getResponse().getNullableShouldEndSession();
-            // apply session attributes for next request
-            applySessionAttributes(response.getResponseEnvelope().getSessionAttributes());
+    public synchronized void exploitResponse(final AlexaResponse response) {
+        lastResponse = response;
+        if (!response.isEmpty()) {
+            response.getShouldEndSession().ifPresent(shouldEndSession -> {
+                // remember session closed
+                sessionClosed = shouldEndSession;
+                trackInFlight(!shouldEndSession);
+                // apply session attributes for next request
+                applySessionAttributes(response.getSessionAttributes());
+            });
         }
     }
 
@@ -137,12 +252,15 @@ public class AlexaSession extends AlexaActor {
      * @return skill's response
      */
     public AlexaResponse intent(final String intentName, final Map<String, Object> slots) {
+        return intent(new AlexaIntentRequest(this, intentName).withSlots(toSlots(slots)));
+    }
+
+    private static Map<String, Slot> toSlots(final Map<String, Object> slots) {
         final Map<String, Slot> slots2 = new HashMap<>();
         slots.forEach((k,v) -> {
             slots2.putIfAbsent(k, v instanceof Slot ? (Slot)v : Slot.builder().withName(k).withValue(v.toString()).build());
         });
-
-        return intent(new AlexaIntentRequest(this, intentName).withSlots(slots2));
+        return slots2;
     }
 
     /**
@@ -156,22 +274,121 @@ public class AlexaSession extends AlexaActor {
     }
 
     private AlexaResponse intent(final AlexaIntentRequest request) {
-        log.info(String.format("\n[START] intent request '%1$s' %2$s ...", request.getIntentName(), request.getSlotSummary()));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] intent request '%1$s' %2$s ...", request.getIntentName(), request.getSlotSummary()));
+        }
         final AlexaResponse response = client.fire(request).orElseThrow(() ->
                 new RuntimeException("[ERROR] intent request did not receive a response.")
         );
-        log.info(String.format("[DONE] intent request '%1$s' in %2$s ms.", request.getIntentName(), getClient().getLastExecutionMillis()));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("[DONE] intent request '%1$s' in %2$s ms.", request.getIntentName(), getLastExecutionMillis()));
+        }
         return response;
     }
 
+    /**
+     * Fires an intent without blocking the caller. Requests of one session need to be chained
+     * as the next request depends on the session state returned with the previous response.
+     * @param intentName name of the intent
+     * @return future completing with the skill's response
+     */
+    public CompletableFuture<AlexaResponse> intentAsync(final String intentName) {
+        return intentAsync(intentName, Collections.emptyMap());
+    }
+
+    /**
+     * Fires an intent with zero to many slots without blocking the caller. Requests of one session need to
+     * be chained as the next request depends on the session state returned with the previous response.
+     * @param intentName name of the intent
+     * @param slots collection of slots
+     * @return future completing with the skill's response
+     */
+    public CompletableFuture<AlexaResponse> intentAsync(final String intentName, final Map<String, Object> slots) {
+        final AlexaIntentRequest request = new AlexaIntentRequest(this, intentName).withSlots(toSlots(slots));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] intent request '%1$s' %2$s ...", request.getIntentName(), request.getSlotSummary()));
+        }
+        return client.fireAsync(request).thenApply(response -> {
+            if (AlexaTrace.isEnabled(log, this)) {
+                log.info(String.format("[DONE] intent request '%1$s' in %2$s ms.", request.getIntentName(), getLastExecutionMillis()));
+            }
+            return response.orElseThrow(() -> new RuntimeException("[ERROR] intent request did not receive a response."));
+        });
+    }
+
+    /**
+     * Fires a launch request without blocking the caller.
+     * @return future completing with the skill's response
+     */
+    public CompletableFuture<AlexaResponse> launchAsync() {
+        // reset attributes first
+        clearSessionAttributes();
+
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info("\n[START] launch request ...");
+        }
+        return client.fireAsync(new AlexaLaunchRequest(this)).thenApply(response -> {
+            if (AlexaTrace.isEnabled(log, this)) {
+                log.info(String.format("[DONE] launch request in %1$s ms.", getLastExecutionMillis()));
+            }
+            return response.orElseThrow(() -> new RuntimeException("[ERROR] launch request did not receive a response."));
+        });
+    }
+
+    /**
+     * Fires an utterance without blocking the caller.
+     * @param utterance the spoken text
+     * @return future completing with the skill's response
+     */
+    public CompletableFuture<AlexaResponse> sayAsync(final String utterance) {
+        verifyUtterancesSupported();
+
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] utterance request '%s' ...", utterance));
+        }
+        return client.fireAsync(new AlexaUtteranceRequest(this), utterance).thenApply(response -> {
+            if (AlexaTrace.isEnabled(log, this)) {
+                log.info(String.format("[DONE] utterance request '%1$s' in %2$s ms.", utterance, getLastExecutionMillis()));
+            }
+            return response.orElseThrow(() -> new RuntimeException("[ERROR] utterance request did not receive a response."));
+        });
+    }
+
+    /**
+     * Requests the end of this session without blocking the caller.
+     * @param reason reason for ending the session
+     * @return future completing once the request was fired
+     */
+    public CompletableFuture<AlexaSession> endSessionAsync(final SessionEndedRequest.Reason reason) {
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] request session end with reason '%s'.", reason.name()));
+        }
+        return client.fireAsync(new AlexaSessionEndedRequest(this, reason)).thenApply(response -> {
+            if (AlexaTrace.isEnabled(log, this)) {
+                log.info(String.format("[DONE] request session end with reason '%s'.", reason.name()));
+            }
+            return this;
+        });
+    }
+
+    private void verifyUtterancesSupported() {
+        // the endpoint may be wrapped by decorators, e.g. for retries or caching
+        Validate.isTrue(client.getEndpointChain().stream().anyMatch(e -> e instanceof AlexaSimulationApiEndpoint || e instanceof AlexaReplayEndpoint),
+                "Utterance requests are only supported by SimulationApi-Endpoints and replays of their recordings.");
+    }
+
     public AlexaResponse say(final String utterance) {
-        Validate.isTrue(this.getClient().endpoint instanceof AlexaSimulationApiEndpoint, "Utterance requests are only supported by SimulationApi-Endpoints.");
+        verifyUtterancesSupported();
 
-        log.info(String.format("\n[START] utterance request '%s' ...", utterance));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] utterance request '%s' ...", utterance));
+        }
         final AlexaResponse response = client.fire(new AlexaUtteranceRequest(this), utterance).orElseThrow(() ->
                 new RuntimeException("[ERROR] utterance request did not receive a response.")
         );
-        log.info(String.format("[DONE] utterance request '%1$s' in %2$s ms.", utterance, getClient().getLastExecutionMillis()));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("[DONE] utterance request '%1$s' in %2$s ms.", utterance, getLastExecutionMillis()));
+        }
         return response;
     }
 
@@ -181,13 +398,17 @@ public class AlexaSession extends AlexaActor {
      */
     public AlexaResponse launch() {
         // reset attributes first
-        this.session.getAttributes().clear();
+        clearSessionAttributes();
 
-        log.info("\n[START] launch request ...");
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info("\n[START] launch request ...");
+        }
         final AlexaResponse response = client.fire(new AlexaLaunchRequest(this)).orElseThrow(() ->
                 new RuntimeException("[ERROR] launch request did not receive a response.")
         );
-        log.info(String.format("[DONE] launch request in %1$s ms.", getClient().getLastExecutionMillis()));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("[DONE] launch request in %1$s ms.", getLastExecutionMillis()));
+        }
         return response;
     }
 
@@ -314,7 +535,9 @@ public class AlexaSession extends AlexaActor {
      * @return skill's response
      */
     public AlexaSession delay(long millis) {
-        log.info(String.format("\n[START] wait for %s ms.", millis));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] wait for %s ms.", millis));
+        }
         try {
             Thread.sleep(millis);
         } catch (InterruptedException e) {
@@ -322,7 +545,9 @@ public class AlexaSession extends AlexaActor {
             log.error(String.format("[ERROR] %s", msg));
             throw new RuntimeException(msg, e);
         }
-        log.info(String.format("[DONE] wait for %s ms.", millis));
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("[DONE] wait for %s ms.", millis));
+        }
         return this;
     }
 
@@ -331,88 +556,23 @@ public class AlexaSession extends AlexaActor {
     }
 
     public void endSession(final SessionEndedRequest.Reason reason) {
-        log.info(String.format("\n[START] request session end with reason '%s'.", reason.name()));
-        client.fire(new AlexaSessionEndedRequest(this, reason));
-        log.info(String.format("[DONE] request session end with reason '%s'.", reason.name()));
-    }
-
-    void executeSession(final Object yLaunch) {
-        if (yLaunch instanceof Optional<?>) {
-            ((Optional<?>)yLaunch).ifPresent(launch -> {
-                executeAction((ArrayList)launch);
-            });
-        } else if (yLaunch instanceof ArrayList) {
-            executeAction((ArrayList)yLaunch);
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("\n[START] request session end with reason '%s'.", reason.name()));
         }
-        else {
-            log.warn("Launch node is of unexpected type.");
+        client.fire(new AlexaSessionEndedRequest(this, reason));
+        trackInFlight(false);
+        if (AlexaTrace.isEnabled(log, this)) {
+            log.info(String.format("[DONE] request session end with reason '%s'.", reason.name()));
         }
     }
 
-    @SuppressWarnings("Unchecked")
-    void executeAction(final ArrayList assets) {
-        final List<String> assertions = new ArrayList<>();
-        final Map<String, Object> params = new HashMap<>();
-        final Map<String, ArrayList> conditions = new HashMap<>();
-        final List<ArrayList> followUps = new ArrayList<>();
-        final AtomicReference<String> intentName = new AtomicReference<>();
-        final AtomicReference<String> utterance = new AtomicReference<>();
-
-        assets.forEach(asset -> {
-            // if asset is not a key-value treat it as an assertion
-            if (asset instanceof String) assertions.add(asset.toString());
-            // if asset is a map it could either be a parameter or a condition with reference
-            else if (asset instanceof Map) {
-                Map<Object, Object> kv = (Map)asset;
-                if (kv.values().stream().allMatch(v -> v instanceof String)) {
-                    kv.forEach((k, v) -> {
-                        if (StringUtils.equalsIgnoreCase(k.toString(), "intent")) {
-                            intentName.set(v.toString());
-                        } else if (StringUtils.equalsIgnoreCase(k.toString(), "utterance")) {
-                            utterance.set(v.toString());
-                        } else {
-                            final String value = v.toString();
-                            // check if value assignment is actually a json expression
-                            if (value.startsWith("$")) {
-                                // try resolve json expression with last response
-                                final String resolvedValue = Optional.ofNullable(client.getLastResponse())
-                                        .map(lr -> lr.get(value).orElse(null))
-                                        .filter(Objects::nonNull)
-                                        .orElseThrow(() -> new RuntimeException(value + " could not be resolved for slot " + k));
-                                params.putIfAbsent(k.toString(), resolvedValue);
-                            } else {
-                                params.putIfAbsent(k.toString(), value);
-                            }
-                        }
-                    });
-                } else if (kv.values().stream().allMatch(v -> v instanceof ArrayList)) {
-                    kv.forEach((k, v) -> {
-                        conditions.putIfAbsent(k.toString(), (ArrayList)v);
-                    });
-                }
-            }
-            else if (asset instanceof ArrayList) {
-                followUps.add((ArrayList)asset);
-            }
-        });
-
-        // fire request
-        final AlexaResponse response =
-                StringUtils.isNotBlank(intentName.get()) ? intent(intentName.get(), params) :
-                        StringUtils.isNotBlank(utterance.get()) ? say(utterance.get()) : launch();
-
-        // go through assertions
-        assertions.forEach(response::assertThat);
-
-        // go through all conditions
-        conditions.forEach((condition, followUp) -> {
-            // if condition met
-            if (response.is(condition)) {
-                executeAction(followUp);
-            }
-        });
-
-        // follow up with standalone anchors
-        followUps.forEach(this::executeAction);
+    /**
+     * Counts the session in flight from its start until the skill or the conversation ends it.
+     * @param open true if the session is still in use
+     */
+    void trackInFlight(final boolean open) {
+        if (inFlight.compareAndSet(!open, open)) {
+            AlexaMetrics.getInstance().add(AlexaMetrics.SESSIONS_IN_FLIGHT, open ? 1 : -1);
+        }
     }
 }
@@ -0,0 +1,65 @@
+package io.klerch.alexa.test.client;
+
+import com.amazon.speech.speechlet.Session;
+import io.klerch.alexa.test.response.AlexaResponse;
+
+import java.util.Map;
+
+/**
+ * The state of a session at one point of the conversation: its sessionId, the session attributes and the last
+ * response. A snapshot never changes, so it can be kept while the session goes on and be forked any number of
+ * times to try different ways of continuing the conversation without replaying it from the start.
+ */
+public class AlexaSessionSnapshot {
+    private final AlexaClient client;
+    // attributes of the session are read-only, so forks share them until they receive a response of their own
+    final Session session;
+    final AlexaResponse lastResponse;
+    final boolean sessionClosed;
+    final boolean quiet;
+
+    AlexaSessionSnapshot(final AlexaClient client, final Session session, final AlexaResponse lastResponse, final boolean sessionClosed, final boolean quiet) {
+        this.client = client;
+        this.session = session;
+        this.lastResponse = lastResponse;
+        this.sessionClosed = sessionClosed;
+        this.quiet = quiet;
+    }
+
+    public AlexaClient getClient() {
+        return client;
+    }
+
+    public String getSessionId() {
+        return session.getSessionId();
+    }
+
+    /**
+     * The session attributes at the time the snapshot was taken.
+     * @return read-only session attributes
+     */
+    public Map<String, Object> getAttributes() {
+        return session.getAttributes();
+    }
+
+    /**
+     * The response received for the most recent request before the snapshot was taken.
+     * @return last response or null if no request returned a response yet
+     */
+    public AlexaResponse getLastResponse() {
+        return lastResponse;
+    }
+
+    public boolean isSessionClosed() {
+        return sessionClosed;
+    }
+
+    /**
+     * A new session continuing the conversation from this snapshot. Forks of the same snapshot
+     * are independent of each other and may be driven by different threads at the same time.
+     * @return forked session
+     */
+    public AlexaSession fork() {
+        return new AlexaSession(this);
+    }
+}
@@ -0,0 +1,295 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Expands value sets given per slot into slot combinations. Values of a slot are deduplicated. With the
+ * cartesian strategy every value of a slot is combined with every value of all the other slots. Combinations
+ * are generated one after another so even millions of them do not have to fit into memory. The pairwise
+ * strategy covers each pair of values of any two slots at least once which takes far fewer combinations.
+ */
+public class AlexaSlotCombinations {
+    private final static Logger log = Logger.getLogger(AlexaSlotCombinations.class);
+    private final List<String> slotNames;
+    private final List<List<Object>> slotValues;
+    private final Strategy strategy;
+
+    public enum Strategy {
+        CARTESIAN, PAIRWISE
+    }
+
+    AlexaSlotCombinations(final AlexaSlotCombinationsBuilder builder) {
+        this.slotNames = new ArrayList<>(builder.slotValues.keySet());
+        this.slotValues = new ArrayList<>();
+        builder.slotValues.values().forEach(values -> slotValues.add(new ArrayList<>(values)));
+        this.strategy = builder.strategy;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public List<String> getSlotNames() {
+        return Collections.unmodifiableList(slotNames);
+    }
+
+    /**
+     * Number of cartesian combinations, that is the product of the number of values of all slots.
+     * @return number of combinations without any reduction
+     */
+    public long getCartesianSize() {
+        return slotValues.stream().mapToLong(List::size).reduce(1L, Math::multiplyExact);
+    }
+
+    /**
+     * The slot combinations. Each of them maps the slot names to one of their values.
+     * @return stream of distinct combinations
+     */
+    public Stream<Map<String, Object>> stream() {
+        final Iterator<int[]> indices = strategy == Strategy.PAIRWISE ? pairwise().iterator() : new CartesianIterator();
+        final Iterator<Map<String, Object>> combinations = new Iterator<Map<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+                return indices.hasNext();
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                return toCombination(indices.next());
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(combinations, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    private Map<String, Object> toCombination(final int[] indices) {
+        final Map<String, Object> combination = new LinkedHashMap<>();
+        for (int slot = 0; slot < indices.length; slot++) {
+            combination.put(slotNames.get(slot), slotValues.get(slot).get(indices[slot]));
+        }
+        return combination;
+    }
+
+    /**
+     * Counts through the value indices of all slots like an odometer.
+     */
+    private class CartesianIterator implements Iterator<int[]> {
+        private final int[] indices = new int[slotValues.size()];
+        private boolean hasNext = slotValues.stream().noneMatch(List::isEmpty);
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            final int[] current = indices.clone();
+            int slot = indices.length - 1;
+            while (slot >= 0 && ++indices[slot] == slotValues.get(slot).size()) {
+                indices[slot--] = 0;
+            }
+            hasNext = slot >= 0;
+            return current;
+        }
+    }
+
+    /**
+     * Builds a pairwise covering set in parameter order (IPOG). It starts with all combinations of the first two slots
+     * and then adds one slot after another. The new slot's value is chosen for each existing combination so that
+     * it covers most of the pairs not yet covered, new combinations are added for the pairs that are left.
+     * @return value indices of all combinations
+     */
+    private Collection<int[]> pairwise() {
+        final int slotCount = slotValues.size();
+        if (slotCount < 2 || slotValues.stream().anyMatch(List::isEmpty)) {
+            final List<int[]> combinations = new ArrayList<>();
+            new CartesianIterator().forEachRemaining(combinations::add);
+            return combinations;
+        }
+        final List<int[]> rows = new ArrayList<>();
+        for (int a = 0; a < slotValues.get(0).size(); a++) {
+            for (int b = 0; b < slotValues.get(1).size(); b++) {
+                final int[] row = newRow(slotCount);
+                row[0] = a;
+                row[1] = b;
+                rows.add(row);
+            }
+        }
+        for (int slot = 2; slot < slotCount; slot++) {
+            final int valueCount = slotValues.get(slot).size();
+            // covered[other][value of other][value of slot]
+            final boolean[][][] covered = new boolean[slot][][];
+            for (int other = 0; other < slot; other++) {
+                covered[other] = new boolean[slotValues.get(other).size()][valueCount];
+            }
+            // horizontal growth: extend the existing rows with the value covering most open pairs,
+            // on a tie with the value used least so far as always picking the first one leaves many pairs open
+            final int[] used = new int[valueCount];
+            for (final int[] row : rows) {
+                int bestValue = 0;
+                int bestCount = -1;
+                for (int value = 0; value < valueCount; value++) {
+                    int count = 0;
+                    for (int other = 0; other < slot; other++) {
+                        if (row[other] >= 0 && !covered[other][row[other]][value]) {
+                            count++;
+                        }
+                    }
+                    if (count > bestCount || (count == bestCount && used[value] < used[bestValue])) {
+                        bestValue = value;
+                        bestCount = count;
+                    }
+                }
+                row[slot] = bestValue;
+                used[bestValue]++;
+                for (int other = 0; other < slot; other++) {
+                    if (row[other] >= 0) {
+                        covered[other][row[other]][bestValue] = true;
+                    }
+                }
+            }
+            // vertical growth: cover the remaining pairs with new rows, filling in free positions where possible
+            final List<int[]> newRows = new ArrayList<>();
+            for (int other = 0; other < slot; other++) {
+                for (int otherValue = 0; otherValue < covered[other].length; otherValue++) {
+                    for (int value = 0; value < valueCount; value++) {
+                        if (!covered[other][otherValue][value]) {
+                            // any row with the value and a free position takes the pair, including rows grown before
+                            int[] target = null;
+                            for (final List<int[]> candidates : Arrays.asList(rows, newRows)) {
+                                for (final int[] row : candidates) {
+                                    if (row[slot] == value && row[other] < 0) {
+                                        target = row;
+                                        break;
+                                    }
+                                }
+                                if (target != null) {
+                                    break;
+                                }
+                            }
+                            if (target == null) {
+                                target = newRow(slotCount);
+                                target[slot] = value;
+                                newRows.add(target);
+                            }
+                            target[other] = otherValue;
+                            covered[other][otherValue][value] = true;
+                        }
+                    }
+                }
+            }
+            rows.addAll(newRows);
+        }
+        // positions no pair depends on take the first value, which may turn rows into duplicates
+        final Map<List<Integer>, int[]> distinct = new LinkedHashMap<>();
+        for (final int[] row : rows) {
+            final List<Integer> key = new ArrayList<>(slotCount);
+            for (int slot = 0; slot < slotCount; slot++) {
+                row[slot] = Math.max(row[slot], 0);
+                key.add(row[slot]);
+            }
+            distinct.putIfAbsent(key, row);
+        }
+        return distinct.values();
+    }
+
+    private static int[] newRow(final int slotCount) {
+        final int[] row = new int[slotCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    public static AlexaSlotCombinationsBuilder create() {
+        return new AlexaSlotCombinationsBuilder();
+    }
+
+    static AlexaSlotCombinationsBuilder create(final Map<?, ?> ySlots) {
+        final AlexaSlotCombinationsBuilder builder = create();
+        ySlots.forEach((slotName, yValues) -> {
+            if (yValues instanceof Collection) {
+                builder.withSlotValues(slotName.toString(), (Collection<?>)yValues);
+            } else {
+                builder.withSlotValues(slotName.toString(), Collections.singletonList(yValues));
+            }
+        });
+        return builder;
+    }
+
+    public static class AlexaSlotCombinationsBuilder {
+        final Map<String, Set<Object>> slotValues = new LinkedHashMap<>();
+        Strategy strategy = Strategy.CARTESIAN;
+
+        AlexaSlotCombinationsBuilder() {
+        }
+
+        public AlexaSlotCombinationsBuilder withSlotValues(final String slotName, final Collection<?> values) {
+            Validate.notBlank(slotName, "Slot name must not be blank.");
+            Validate.notNull(values, "Values of slot %s must not be null.", slotName);
+            final Set<Object> set = slotValues.computeIfAbsent(slotName, k -> new LinkedHashSet<>());
+            values.forEach(value -> set.add(Validate.notNull(value, "Values of slot %s must not be null.", slotName)));
+            return this;
+        }
+
+        public AlexaSlotCombinationsBuilder withSlotValues(final String slotName, final Object... values) {
+            return withSlotValues(slotName, Arrays.asList(values));
+        }
+
+        /**
+         * Reads slot values from a CSV file. The first line holds the slot names, each column below the values
+         * of its slot. Columns may differ in length, empty cells are skipped.
+         * @param csvFile the CSV file
+         * @return builder
+         */
+        public AlexaSlotCombinationsBuilder withSlotValues(final Path csvFile) {
+            final List<String> lines;
+            try {
+                lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
+            } catch (final IOException e) {
+                final String msg = String.format("Could not read slot values from %s. %s", csvFile, e.getMessage());
+                log.error(String.format("[ERROR] %s", msg));
+                throw new RuntimeException(msg, e);
+            }
+            Validate.isTrue(!lines.isEmpty(), "CSV file %s with slot values is empty.", csvFile);
+            final String[] slotNames = splitCsvLine(lines.get(0));
+            lines.stream().skip(1).filter(StringUtils::isNotBlank).map(AlexaSlotCombinationsBuilder::splitCsvLine).forEach(cells -> {
+                for (int i = 0; i < Math.min(slotNames.length, cells.length); i++) {
+                    if (!cells[i].isEmpty()) {
+                        withSlotValues(slotNames[i], cells[i]);
+                    }
+                }
+            });
+            return this;
+        }
+
+        private static String[] splitCsvLine(final String line) {
+            final String[] cells = line.split(",", -1);
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = StringUtils.strip(cells[i].trim(), "\"");
+            }
+            return cells;
+        }
+
+        public AlexaSlotCombinationsBuilder withStrategy(final Strategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        public AlexaSlotCombinations build() {
+            Validate.notNull(strategy, "Strategy must not be null.");
+            return new AlexaSlotCombinations(this);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.klerch.alexa.test.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of a suite run with one entry per conversation script.
+ */
+public class AlexaSuiteResult {
+    private final List<ScriptResult> results;
+    private final long durationMillis;
+
+    public static class ScriptResult {
+        private final String name;
+        private final long durationMillis;
+        private final Throwable failure;
+
+        ScriptResult(final String name, final long durationMillis, final Throwable failure) {
+            this.name = name;
+            this.durationMillis = durationMillis;
+            this.failure = failure;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public boolean isPassed() {
+            return failure == null;
+        }
+
+        /**
+         * The reason the script failed.
+         * @return the exception or assertion error, null if the script passed
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+    }
+
+    AlexaSuiteResult(final List<ScriptResult> results, final long durationMillis) {
+        this.results = Collections.unmodifiableList(results);
+        this.durationMillis = durationMillis;
+    }
+
+    public List<ScriptResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Wall-clock time of the whole run.
+     * @return milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getScriptCount() {
+        return results.size();
+    }
+
+    public long getPassedCount() {
+        return results.stream().filter(ScriptResult::isPassed).count();
+    }
+
+    public long getFailedCount() {
+        return getScriptCount() - getPassedCount();
+    }
+
+    public boolean isPassed() {
+        return getFailedCount() == 0;
+    }
+
+    /**
+     * A table listing each script with its outcome and execution time, followed by the totals.
+     * @return summary
+     */
+    public String getReport() {
+        final int nameWidth = Math.max(6, results.stream().mapToInt(r -> r.getName().length()).max().orElse(0));
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-" + nameWidth + "s  %-6s  %10s%n", "Script", "Result", "Time (ms)"));
+        results.forEach(r -> {
+            sb.append(String.format("%-" + nameWidth + "s  %-6s  %10d%n", r.getName(), r.isPassed() ? "PASSED" : "FAILED", r.getDurationMillis()));
+            if (!r.isPassed()) {
+                sb.append(String.format("    -> %s%n", r.getFailure().getMessage()));
+            }
+        });
+        final long sumMillis = results.stream().mapToLong(ScriptResult::getDurationMillis).sum();
+        sb.append(String.format("%1$s scripts, %2$s passed, %3$s failed in %4$s ms (%5$s ms sequential).",
+                getScriptCount(), getPassedCount(), getFailedCount(), durationMillis, sumMillis));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * The suite runner executes many conversation scripts on a bounded pool of workers. Each script
+ * runs with a client of its own, so a failing script does not affect any of the others.
+ */
+public class AlexaSuiteRunner {
+    private final static Logger log = Logger.getLogger(AlexaSuiteRunner.class);
+    private final int parallelism;
+    private final List<Script> scripts;
+
+    /**
+     * Opens the YAML content of a conversation script.
+     */
+    @FunctionalInterface
+    public interface ScriptSource {
+        InputStream open() throws IOException;
+    }
+
+    private static class Script {
+        private final String name;
+        private final ScriptSource source;
+
+        private Script(final String name, final ScriptSource source) {
+            this.name = name;
+            this.source = source;
+        }
+    }
+
+    AlexaSuiteRunner(final AlexaSuiteRunnerBuilder builder) {
+        this.parallelism = builder.parallelism;
+        this.scripts = new ArrayList<>(builder.scripts);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs all scripts and blocks until the last of them has finished.
+     * @return results of all scripts in the order they were added
+     */
+    public AlexaSuiteResult run() {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-suite-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info(String.format("[START] running %1$s conversation scripts with up to %2$s in parallel ...", scripts.size(), parallelism));
+
+        final long startNanos = System.nanoTime();
+        try {
+            final List<CompletableFuture<AlexaSuiteResult.ScriptResult>> futures = scripts.stream()
+                    .map(script -> CompletableFuture.supplyAsync(() -> execute(script), executor))
+                    .collect(Collectors.toList());
+            final List<AlexaSuiteResult.ScriptResult> results = futures.stream()
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+            final AlexaSuiteResult result = new AlexaSuiteResult(results, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            log.info(String.format("[DONE] running %1$s conversation scripts in %2$s ms. %3$s passed, %4$s failed.",
+                    result.getScriptCount(), result.getDurationMillis(), result.getPassedCount(), result.getFailedCount()));
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private AlexaSuiteResult.ScriptResult execute(final Script script) {
+        log.info(String.format("[START] conversation script '%s' ...", script.name));
+        final long startNanos = System.nanoTime();
+        try (final InputStream inputStream = script.source.open()) {
+            AlexaClient.create(inputStream).build().startScript();
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            log.info(String.format("[DONE] conversation script '%1$s' passed in %2$s ms.", script.name, millis));
+            return new AlexaSuiteResult.ScriptResult(script.name, millis, null);
+        } catch (final IOException | RuntimeException | AssertionError e) {
+            // isolate the failure to this script and carry on with the others
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            log.error(String.format("[FAILED] conversation script '%1$s' after %2$s ms. %3$s", script.name, millis, e.getMessage()));
+            return new AlexaSuiteResult.ScriptResult(script.name, millis, e);
+        }
+    }
+
+    public static AlexaSuiteRunnerBuilder create() {
+        return new AlexaSuiteRunnerBuilder();
+    }
+
+    public static class AlexaSuiteRunnerBuilder {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        final List<Script> scripts = new ArrayList<>();
+
+        AlexaSuiteRunnerBuilder() {
+        }
+
+        public AlexaSuiteRunnerBuilder withParallelism(final int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public AlexaSuiteRunnerBuilder withScript(final String name, final ScriptSource source) {
+            Validate.notBlank(name, "Script name must not be blank.");
+            Validate.notNull(source, "Script source must not be null.");
+            this.scripts.add(new Script(name, source));
+            return this;
+        }
+
+        public AlexaSuiteRunnerBuilder withScript(final Path file) {
+            return withScript(file.toString(), () -> Files.newInputStream(file));
+        }
+
+        public AlexaSuiteRunner build() {
+            Validate.isTrue(parallelism > 0, "Parallelism must be greater than zero.");
+            return new AlexaSuiteRunner(this);
+        }
+    }
+}
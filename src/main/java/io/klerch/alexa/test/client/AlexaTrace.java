@@ -0,0 +1,38 @@
+package io.klerch.alexa.test.client;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Tells if requests and responses of a session are traced, so callers build trace messages only when they
+ * are logged. Sessions of a quiet load run are not traced at all, failures and summaries are logged regardless.
+ * Guard messages like
+ * <pre>
+ * if (AlexaTrace.isEnabled(log, session)) {
+ *     log.info(String.format("[DONE] intent request '%1$s' in %2$s ms.", intentName, millis));
+ * }
+ * </pre>
+ */
+public final class AlexaTrace {
+    private AlexaTrace() {
+    }
+
+    /**
+     * Tells if info messages about requests of the session are logged.
+     * @param log the logger
+     * @param session the session, null if the message is not related to a session
+     * @return True, if messages should be built and logged
+     */
+    public static boolean isEnabled(final Logger log, final AlexaSession session) {
+        return log.isInfoEnabled() && (session == null || !session.isQuiet());
+    }
+
+    /**
+     * Tells if debug messages about requests of the session, e.g. whole payloads, are logged.
+     * @param log the logger
+     * @param session the session, null if the message is not related to a session
+     * @return True, if messages should be built and logged
+     */
+    public static boolean isDebugEnabled(final Logger log, final AlexaSession session) {
+        return log.isDebugEnabled() && (session == null || !session.isQuiet());
+    }
+}
@@ -3,29 +3,34 @@ package io.klerch.alexa.test.client.endpoint;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.klerch.alexa.test.client.AlexaMetrics;
+import io.klerch.alexa.test.client.AlexaSession;
+import io.klerch.alexa.test.client.AlexaTrace;
 import io.klerch.alexa.test.request.AlexaRequest;
 import io.klerch.alexa.test.response.AlexaResponse;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.message.BasicNameValuePair;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class AlexaApiEndpoint implements AlexaEndpoint {
     @JsonIgnore
@@ -46,19 +51,31 @@ public abstract class AlexaApiEndpoint implements AlexaEndpoint {
     @JsonIgnore
     private final String lwaRefreshToken;
     @JsonIgnore
-    private String lwaAccessToken;
+    private final AlexaLwaTokenManager tokenManager;
 
-    @JsonIgnore
-    String id = "";
     @JsonIgnore
     final static ObjectMapper om = new ObjectMapper();
     @JsonIgnore
     final static Logger log = Logger.getLogger(AlexaInvocationApiEndpoint.class);
     @JsonIgnore
     final String skillId;
+    @JsonIgnore
+    final AlexaHttpTransport httpTransport;
+    @JsonIgnore
+    private final boolean ownsHttpTransport;
+    @JsonIgnore
+    private final AtomicBoolean closed = new AtomicBoolean();
+    @JsonIgnore
+    final AlexaApiPollScheduler pollScheduler;
+    @JsonIgnore
+    final AlexaApiRateLimiter rateLimiter;
 
     AlexaApiEndpoint(final AlexaApiEndpointBuilder builder) {
         this.skillId = builder.skillId;
+        this.httpTransport = builder.httpTransport;
+        this.ownsHttpTransport = builder.ownsHttpTransport;
+        this.pollScheduler = builder.pollScheduler;
+        this.rateLimiter = builder.rateLimiter;
 
         this.lwaClientId = Optional.ofNullable(builder.lwaClientId).filter(StringUtils::isNotBlank).orElse(System.getenv(LWA_CLIENT_ID_PROPERTY));
         Validate.notBlank(this.lwaClientId, "[ERROR] Missing the " + LWA_CLIENT_ID_PROPERTY + " as an environment variable.");
@@ -69,126 +86,225 @@ public abstract class AlexaApiEndpoint implements AlexaEndpoint {
         this.lwaRefreshToken = Optional.ofNullable(builder.lwaRefreshToken).filter(StringUtils::isNotBlank).orElse(System.getenv(LWA_REFRESH_TOKEN_PROPERTY));
         Validate.notBlank(this.lwaRefreshToken, "[ERROR] Missing the " + LWA_REFRESH_TOKEN_PROPERTY + " as an environment variable.");
 
-        this.lwaAccessToken = System.getProperty(LWA_ACCESS_TOKEN_PROPERTY);
+        this.tokenManager = AlexaLwaTokenManager.getInstance(lwaClientId, lwaClientSecret, lwaRefreshToken, httpTransport);
     }
 
     @JsonIgnore
     public abstract String getService();
 
+    /**
+     * The transport whose connection pool is used for all calls of this endpoint.
+     * @return http transport
+     */
+    @JsonIgnore
+    public AlexaHttpTransport getHttpTransport() {
+        return this.httpTransport;
+    }
+
+    /**
+     * The token manager providing access tokens to this and all other endpoints with the same LWA credentials.
+     * @return token manager
+     */
+    @JsonIgnore
+    public AlexaLwaTokenManager getTokenManager() {
+        return this.tokenManager;
+    }
+
+    /**
+     * The scheduler polling for results of transactions still in progress.
+     * @return poll scheduler
+     */
+    @JsonIgnore
+    public AlexaApiPollScheduler getPollScheduler() {
+        return this.pollScheduler;
+    }
+
     @Override
     public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
-        JsonNode root = null;
-        String statusCode = IN_PROGRESS;
-
-        if (StringUtils.isBlank(lwaAccessToken)) {
-            refreshToken();
+        try {
+            return fireAsync(request, payload).join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
         }
+    }
 
-        while (IN_PROGRESS.equals(statusCode)) {
+    /**
+     * Turns the payload handed over by the client into the body posted to SMAPI.
+     * @param payload the speechlet request payload or utterance
+     * @return request body for the SMAPI service
+     */
+    abstract String getRequestPayload(final String payload);
+
+    /**
+     * Posts the request to SMAPI on a worker of the HTTP transport. Waiting for the rate limit, throttled calls
+     * and transactions still in progress are handed over to schedulers, so no thread waits for them.
+     * @param request the request
+     * @param payload the request payload
+     * @return future completing with the skill's response
+     */
+    @Override
+    public CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+        final String requestPayload = getRequestPayload(payload);
+        final String timer = AlexaMetrics.SMAPI + "." + getService();
+        final AlexaSession session = request.getSession();
+        final long startNanos = System.nanoTime();
+        return call(session, requestPayload, "", 0)
+                .thenCompose(root -> {
+                    if (!isInProgress(root)) {
+                        return CompletableFuture.completedFuture(root);
+                    }
+                    // grab id for next request to poll for completion
+                    final String id = root.get("id").textValue();
+                    if (AlexaTrace.isEnabled(log, session)) {
+                        log.info("[INFO] Asynchronous processing in progress. Keep on polling for result of transaction with id " + id);
+                    }
+                    return pollScheduler.pollAsync(() -> call(session, requestPayload, id, 0), AlexaApiEndpoint::isInProgress);
+                })
+                .thenApply(root -> getResponse(request, payload, root))
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        AlexaMetrics.getInstance().increment(timer + ".errors");
+                    } else {
+                        AlexaMetrics.getInstance().record(timer, System.nanoTime() - startNanos);
+                    }
+                });
+    }
+
+    private CompletableFuture<JsonNode> call(final AlexaSession session, final String requestPayload, final String id, final int retries) {
+        // the rate limiter completes the token once it is due, the blocking call is made by a worker of the transport
+        return rateLimiter.acquireAsync().thenComposeAsync(tokenNanos -> {
+            final String accessToken = tokenManager.getAccessToken();
             // call API
-            HttpResponse httpResponse = fire(payload);
+            HttpResponse httpResponse = fire(requestPayload, id, accessToken);
             // check if returned Unauthorized code
             if (httpResponse.getStatusLine().getStatusCode() == 401) {
-                // try refresh token
-                refreshToken();
-                // call API again
-                httpResponse = fire(payload);
+                // get a new token unless another caller already did so, then call API again
+                httpResponse = fire(requestPayload, id, tokenManager.getAccessTokenAfterUnauthorized(accessToken));
             }
-            id = "";
-
-            Validate.inclusiveBetween(200, 399, httpResponse.getStatusLine().getStatusCode(), httpResponse.getStatusLine().getReasonPhrase());
+            final int statusCode = httpResponse.getStatusLine().getStatusCode();
+            AlexaMetrics.getInstance().increment(AlexaMetrics.SMAPI + "." + getService() + ".status." + statusCode);
+            // SMAPI did not process a throttled call, so it is safe to make it again
+            if (statusCode == 429 && retries < rateLimiter.getMaxRetries()) {
+                rateLimiter.onThrottled(tokenNanos, getRetryAfterMillis(httpResponse));
+                if (AlexaTrace.isEnabled(log, session)) {
+                    log.info(String.format("->[INFO] SMAPI throttled the call. Retry %1$s of %2$s.", retries + 1, rateLimiter.getMaxRetries()));
+                }
+                return call(session, requestPayload, id, retries + 1);
+            }
+            return CompletableFuture.completedFuture(getRoot(session, httpResponse));
+        }, httpTransport.getExecutor());
+    }
 
-            final HttpEntity responseEntity = httpResponse.getEntity();
-            final String responsePayload;
+    private JsonNode getRoot(final AlexaSession session, final HttpResponse httpResponse) {
+        final int statusCode = httpResponse.getStatusLine().getStatusCode();
+        if (statusCode < 200 || statusCode > 399) {
+            throw new AlexaEndpointException(statusCode, String.format("[ERROR] SMAPI returned %1$s %2$s.", statusCode, httpResponse.getStatusLine().getReasonPhrase()));
+        }
+        rateLimiter.onSuccess();
 
-            try {
-                responsePayload = IOUtils.toString(responseEntity.getContent(), "UTF-8");
-                log.debug(responsePayload);
-                root = om.readTree(responsePayload);
-            } catch (final IOException e) {
-                throw new RuntimeException("[ERROR] Invalid response from SMAPI. " + e.getMessage());
-            }
+        final HttpEntity responseEntity = httpResponse.getEntity();
+        final JsonNode root;
 
-            statusCode = root.get("status").textValue();
+        try {
+            // parse the stream right away, the payload is only rendered as a string if it is logged
+            root = om.readTree(responseEntity.getContent());
+        } catch (final IOException e) {
+            throw new RuntimeException("[ERROR] Invalid response from SMAPI. " + e.getMessage());
+        }
+        if (AlexaTrace.isDebugEnabled(log, session)) {
+            log.debug(root.toString());
+        }
 
-            Validate.isTrue(!StringUtils.equalsIgnoreCase("FAILED", statusCode), "SMAPI returned with an error. " + responsePayload);
+        Validate.isTrue(!StringUtils.equalsIgnoreCase("FAILED", root.get("status").textValue()), "SMAPI returned with an error. %s", root);
+        return root;
+    }
 
-            if (IN_PROGRESS.equals(statusCode)) {
-                // grab id for next request to poll for completion
-                id = root.get("id").textValue();
-                log.info("[INFO] Asynchronous processing in progress. Keep on polling for result of transaction with id " + id);
-            }
+    static long getRetryAfterMillis(final HttpResponse response) {
+        final Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null || StringUtils.isBlank(header.getValue())) {
+            return 0;
+        }
+        final String value = header.getValue().trim();
+        // either seconds to wait or the date to wait for
+        if (NumberUtils.isDigits(value)) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
         }
+        final Date date = DateUtils.parseDate(value);
+        return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : 0;
+    }
+
+    private static boolean isInProgress(final JsonNode root) {
+        return IN_PROGRESS.equals(root.get("status").textValue());
+    }
 
-        final String endpoint = root.get("result").get("skillExecutionInfo").get("invocationRequest").get("endpoint").textValue();
-        log.info("[INFO] Endpoint is " + endpoint);
+    private Optional<AlexaResponse> getResponse(final AlexaRequest request, final String payload, final JsonNode root) {
+        if (AlexaTrace.isEnabled(log, request.getSession())) {
+            log.info("[INFO] Endpoint is " + root.get("result").get("skillExecutionInfo").get("invocationRequest").get("endpoint").textValue());
+        }
 
         final JsonNode responseBody = root.get("result").get("skillExecutionInfo").get("invocationResponse").get("body");
 
         Validate.notNull(responseBody, "[ERROR] Skill returned an invalid response");
 
         try {
-            return Optional.of(new AlexaResponse(request, payload, om.writeValueAsString(responseBody)));
+            return Optional.of(new AlexaResponse(request, payload, om.writeValueAsBytes(responseBody)));
         } catch (IOException e) {
             throw new RuntimeException("[ERROR] Could not parse skill response received from SMAPI. " + e.getMessage());
         }
     }
 
-    HttpResponse fire(final String payload) {
+    HttpResponse fire(final String payload, final String id, final String accessToken) {
         try {
-            return HttpClientBuilder.create().build().execute(getRequest(payload));
+            return httpTransport.execute(getRequest(payload, id, accessToken));
         } catch (final IOException e) {
-            throw new RuntimeException("[ERROR] Error received from SMAPI. " + e.getMessage());
+            throw new RuntimeException("[ERROR] Error received from SMAPI. " + e.getMessage(), e);
         }
     }
 
-    HttpUriRequest getRequest(final String payload) {
+    HttpUriRequest getRequest(final String payload, final String id, final String accessToken) {
         final String url = "https://api.amazonalexa.com/v0/skills/" + this.skillId + "/" + getService() + (StringUtils.isNotBlank(id) ? "/" : "") + id;
 
         final HttpUriRequest request = StringUtils.isNotBlank(id) ? new HttpGet(url) : new HttpPost(url);
         request.setHeader(HttpHeaders.CONTENT_TYPE,"application/json");
         request.setHeader(HttpHeaders.ACCEPT,"application/json");
-        request.setHeader(HttpHeaders.AUTHORIZATION, lwaAccessToken);
+        request.setHeader(HttpHeaders.AUTHORIZATION, accessToken);
 
         if (request instanceof HttpPost) {
-            final HttpEntity requestEntity = new ByteArrayEntity(payload.getBytes());
+            final HttpEntity requestEntity = new ByteArrayEntity(payload.getBytes(StandardCharsets.UTF_8));
             ((HttpPost)request).setEntity(requestEntity);
         }
         return request;
     }
 
-    public void refreshToken() {
-        final String url = "https://api.amazon.com/auth/o2/token";
-
-        final HttpPost httpPost = new HttpPost(url);
-        httpPost.setHeader(HttpHeaders.CONTENT_TYPE,"application/x-www-form-urlencoded;charset=UTF-8");
-
-        httpPost.setHeader(HttpHeaders.ACCEPT,"application/json");
-        httpPost.setHeader(HttpHeaders.ACCEPT_ENCODING,"application/json");
-
-        final List<NameValuePair> nameValuePairs = new ArrayList<>();
-        nameValuePairs.add(new BasicNameValuePair("grant_type", "refresh_token"));
-        nameValuePairs.add(new BasicNameValuePair("refresh_token", lwaRefreshToken));
-        nameValuePairs.add(new BasicNameValuePair("client_id", lwaClientId));
-        nameValuePairs.add(new BasicNameValuePair("client_secret", lwaClientSecret));
-
-        final HttpResponse httpResponse;
-        try {
-            httpPost.setEntity(new UrlEncodedFormEntity(nameValuePairs));
+    /**
+     * The rate limiter spacing out calls to SMAPI for this skill.
+     * @return rate limiter
+     */
+    @JsonIgnore
+    public AlexaApiRateLimiter getRateLimiter() {
+        return this.rateLimiter;
+    }
 
-            httpResponse = HttpClientBuilder.create().build().execute(httpPost);
-            Validate.inclusiveBetween(200, 399, httpResponse.getStatusLine().getStatusCode(), httpResponse.getStatusLine().getReasonPhrase());
-            final HttpEntity responseEntity = httpResponse.getEntity();
-            final String responsePayload = IOUtils.toString(responseEntity.getContent(), "UTF-8");
-            cacheAccessToken(om.readTree(responsePayload));
-        } catch (final IOException e) {
-            throw new RuntimeException("[ERROR] Error received from Login with Amazon on refreshing an access token. " + e.getMessage(), e);
-        }
+    public void refreshToken() {
+        tokenManager.awaitRefresh();
     }
 
-    private void cacheAccessToken(final JsonNode token) {
-        lwaAccessToken = Optional.ofNullable(token.get("access_token")).orElseThrow(() -> new RuntimeException("Could not obtain access token from Amazon Login.")).textValue();
-        System.setProperty(LWA_ACCESS_TOKEN_PROPERTY, lwaAccessToken);
+    /**
+     * Releases the token manager and closes the HTTP transport if it was created for this endpoint from its configuration.
+     * Transports given to the builder and the default transport are left open for their owners.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        tokenManager.release();
+        if (ownsHttpTransport) {
+            try {
+                httpTransport.close();
+            } catch (final IOException e) {
+                log.warn(String.format("[WARN] Could not close HTTP transport of %s. %s", getService(), e.getMessage()));
+            }
+        }
     }
 
     public abstract static class AlexaApiEndpointBuilder<T extends AlexaApiEndpoint> {
@@ -196,6 +312,11 @@ public abstract class AlexaApiEndpoint implements AlexaEndpoint {
         String lwaClientId;
         String lwaClientSecret;
         String lwaRefreshToken;
+        AlexaHttpTransport httpTransport;
+        boolean ownsHttpTransport;
+        AlexaApiPollScheduler pollScheduler;
+        AlexaApiRateLimiter rateLimiter;
+        AlexaApiRateLimiter.AlexaApiRateLimiterBuilder rateLimiterBuilder;
 
         AlexaApiEndpointBuilder(final String skillId) {
             this.skillId = skillId;
@@ -214,6 +335,19 @@ public abstract class AlexaApiEndpoint implements AlexaEndpoint {
                 this.lwaClientSecret = Optional.ofNullable(yLwa.get("clientSecret")).map(Object::toString).orElse(null);
                 this.lwaRefreshToken = Optional.ofNullable(yLwa.get("refreshToken")).map(Object::toString).orElse(null);
             });
+
+            Optional.ofNullable(endpointConfiguration.get("http")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yHttp -> {
+                this.httpTransport = AlexaHttpTransport.create(yHttp).build();
+                this.ownsHttpTransport = true;
+            });
+
+            Optional.ofNullable(endpointConfiguration.get("polling")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yPolling -> {
+                this.pollScheduler = AlexaApiPollScheduler.create(yPolling).build();
+            });
+
+            Optional.ofNullable(endpointConfiguration.get("rateLimit")).filter(o -> o instanceof HashMap).map(o -> (HashMap)o).ifPresent(yRateLimit -> {
+                this.rateLimiterBuilder = AlexaApiRateLimiter.create(yRateLimit);
+            });
         }
 
         public AlexaApiEndpointBuilder withSkillId(final String skillId) {
@@ -236,8 +370,39 @@ public abstract class AlexaApiEndpoint implements AlexaEndpoint {
             return this;
         }
 
+        public AlexaApiEndpointBuilder withHttpTransport(final AlexaHttpTransport httpTransport) {
+            this.httpTransport = httpTransport;
+            this.ownsHttpTransport = false;
+            return this;
+        }
+
+        public AlexaApiEndpointBuilder withPollScheduler(final AlexaApiPollScheduler pollScheduler) {
+            this.pollScheduler = pollScheduler;
+            return this;
+        }
+
+        /**
+         * The rate limiter to use rather than the one shared by all endpoints of the skill.
+         * @param rateLimiter the rate limiter
+         * @return builder
+         */
+        public AlexaApiEndpointBuilder withRateLimiter(final AlexaApiRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
         void preBuild() {
             Validate.notBlank(skillId, "[ERROR] SkillId must not be empty.");
+
+            if (httpTransport == null) {
+                httpTransport = AlexaHttpTransport.getDefault();
+            }
+            if (pollScheduler == null) {
+                pollScheduler = AlexaApiPollScheduler.getDefault();
+            }
+            if (rateLimiter == null) {
+                rateLimiter = rateLimiterBuilder != null ? AlexaApiRateLimiter.getInstance(skillId, rateLimiterBuilder) : AlexaApiRateLimiter.getInstance(skillId);
+            }
         }
 
         public abstract T build();
@@ -0,0 +1,203 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import io.klerch.alexa.test.client.AlexaMetrics;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The poll scheduler keeps track of all SMAPI transactions still in progress. It polls each of them
+ * with an increasing delay and completes the caller's future once the result arrives. No thread is
+ * occupied by a transaction while it waits for its next poll.
+ */
+public class AlexaApiPollScheduler {
+    private final static Logger log = Logger.getLogger(AlexaApiPollScheduler.class);
+    private static final long DEFAULT_INITIAL_DELAY_MILLIS = 250L;
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 5000L;
+    private static final double DEFAULT_MULTIPLIER = 2.0;
+    private static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final long timeoutMillis;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder polls = new LongAdder();
+
+    private static class DefaultHolder {
+        private static final AlexaApiPollScheduler DEFAULT = create().build();
+    }
+
+    AlexaApiPollScheduler(final AlexaApiPollSchedulerBuilder builder) {
+        this.initialDelayMillis = builder.initialDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.multiplier = builder.multiplier;
+        this.timeoutMillis = builder.timeoutMillis;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-smapi-poll-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-smapi-poll-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The scheduler shared by all API endpoints which were not given a scheduler of their own.
+     * @return default poll scheduler
+     */
+    public static AlexaApiPollScheduler getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Polls until the result is no longer in progress. The first poll happens after the initial delay,
+     * each further poll waits longer by the multiplier up to the maximum delay.
+     * @param poll the call returning the current state of the transaction
+     * @param inProgress tells if the state returned by a poll is still in progress
+     * @param <T> type of the state
+     * @return future completing with the first state that is no longer in progress
+     */
+    public <T> CompletableFuture<T> poll(final Supplier<T> poll, final Predicate<T> inProgress) {
+        // blocking polls run on the workers of the scheduler
+        return pollAsync(() -> CompletableFuture.supplyAsync(poll, workers), inProgress);
+    }
+
+    /**
+     * Polls like poll, with a poll which returns a future rather than blocking the scheduler.
+     * @param poll the call returning a future of the current state of the transaction
+     * @param inProgress tells if the state returned by a poll is still in progress
+     * @param <T> type of the state
+     * @return future completing with the first state that is no longer in progress
+     */
+    public <T> CompletableFuture<T> pollAsync(final Supplier<CompletableFuture<T>> poll, final Predicate<T> inProgress) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        outstanding.incrementAndGet();
+        future.whenComplete((result, e) -> outstanding.decrementAndGet());
+        schedule(future, poll, inProgress, initialDelayMillis, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        return future;
+    }
+
+    private <T> void schedule(final CompletableFuture<T> future, final Supplier<CompletableFuture<T>> poll, final Predicate<T> inProgress, final long delayMillis, final long deadlineNanos) {
+        scheduler.schedule(() -> {
+            polls.increment();
+            AlexaMetrics.getInstance().increment(AlexaMetrics.SMAPI_POLLS);
+            CompletableFuture<T> result;
+            try {
+                result = poll.get();
+            } catch (final RuntimeException e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            result.whenComplete((state, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                } else if (!inProgress.test(state)) {
+                    future.complete(state);
+                } else if (System.nanoTime() - deadlineNanos > 0) {
+                    future.completeExceptionally(new RuntimeException("[ERROR] SMAPI transaction is still in progress after " + timeoutMillis + " ms."));
+                } else {
+                    schedule(future, poll, inProgress, Math.min(maxDelayMillis, (long)(delayMillis * multiplier)), deadlineNanos);
+                }
+            });
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Number of transactions currently waiting for their result.
+     * @return outstanding transactions
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Number of polls issued by this scheduler.
+     * @return poll count
+     */
+    public long getPollCount() {
+        return polls.sum();
+    }
+
+    public void shutdown() {
+        log.debug(String.format("[DEBUG] Shut down poll scheduler with %s outstanding transactions.", getOutstanding()));
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    public static AlexaApiPollSchedulerBuilder create() {
+        return new AlexaApiPollSchedulerBuilder();
+    }
+
+    public static AlexaApiPollSchedulerBuilder create(final HashMap<Object, Object> pollingConfiguration) {
+        return new AlexaApiPollSchedulerBuilder(pollingConfiguration);
+    }
+
+    public static class AlexaApiPollSchedulerBuilder {
+        long initialDelayMillis = DEFAULT_INITIAL_DELAY_MILLIS;
+        long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+        double multiplier = DEFAULT_MULTIPLIER;
+        long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+        AlexaApiPollSchedulerBuilder() {
+        }
+
+        AlexaApiPollSchedulerBuilder(final HashMap<Object, Object> pollingConfiguration) {
+            getString(pollingConfiguration, "initialDelay").map(Long::valueOf).ifPresent(this::withInitialDelayMillis);
+            getString(pollingConfiguration, "maxDelay").map(Long::valueOf).ifPresent(this::withMaxDelayMillis);
+            getString(pollingConfiguration, "multiplier").map(Double::valueOf).ifPresent(this::withMultiplier);
+            getString(pollingConfiguration, "timeout").map(Long::valueOf).ifPresent(seconds -> withTimeoutMillis(TimeUnit.SECONDS.toMillis(seconds)));
+        }
+
+        private static Optional<String> getString(final HashMap<Object, Object> yNode, final String key) {
+            return Optional.ofNullable(yNode.get(key)).map(Object::toString);
+        }
+
+        public AlexaApiPollSchedulerBuilder withInitialDelayMillis(final long initialDelayMillis) {
+            this.initialDelayMillis = initialDelayMillis;
+            return this;
+        }
+
+        public AlexaApiPollSchedulerBuilder withMaxDelayMillis(final long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public AlexaApiPollSchedulerBuilder withMultiplier(final double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        public AlexaApiPollSchedulerBuilder withTimeoutMillis(final long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        public AlexaApiPollScheduler build() {
+            Validate.isTrue(initialDelayMillis > 0, "Initial delay must be greater than zero.");
+            Validate.isTrue(maxDelayMillis >= initialDelayMillis, "Maximum delay must not be less than the initial delay.");
+            Validate.isTrue(multiplier >= 1.0, "Multiplier must not be less than 1.");
+            Validate.isTrue(timeoutMillis > 0, "Timeout must be greater than zero.");
+            return new AlexaApiPollScheduler(this);
+        }
+    }
+}
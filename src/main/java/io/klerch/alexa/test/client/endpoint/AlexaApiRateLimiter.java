@@ -0,0 +1,342 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import io.klerch.alexa.test.client.AlexaMetrics;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The rate limiter spaces out the SMAPI calls made for a skill, so parallel sessions and suite runs stay
+ * within the account's quota rather than failing with 429 Too Many Requests. It hands out tokens at the
+ * current rate and keeps up to a burst of unused ones. The rate adapts to SMAPI: it grows by a fixed amount
+ * per second while calls succeed and is cut by a factor whenever SMAPI throttles, in which case no token is
+ * handed out before the time SMAPI asked to retry after.
+ */
+public class AlexaApiRateLimiter {
+    private final static Logger log = Logger.getLogger(AlexaApiRateLimiter.class);
+    private static final double DEFAULT_RATE = 5.0;
+    private static final double DEFAULT_MIN_RATE = 0.5;
+    private static final double DEFAULT_MAX_RATE = 50.0;
+    private static final double DEFAULT_INCREASE = 1.0;
+    private static final double DEFAULT_DECREASE = 0.5;
+    private static final int DEFAULT_BURST = 5;
+    private static final int DEFAULT_MAX_RETRIES = 10;
+    private static final ConcurrentMap<String, AlexaApiRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    private static class SchedulerHolder {
+        // hands out tokens which are due later without occupying a thread while waiting
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-smapi-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increase;
+    private final double decrease;
+    private final int burst;
+    private final int maxRetries;
+    private final List<Object> configuration;
+    private final LongAdder throttled = new LongAdder();
+    // guarded by this
+    private double rate;
+    private double storedTokens;
+    private long nextFreeNanos;
+    private long lastDecreaseNanos;
+    private long acquired;
+    private long firstAcquiredNanos;
+    private long lastAcquiredNanos;
+
+    AlexaApiRateLimiter(final AlexaApiRateLimiterBuilder builder) {
+        this.rate = builder.rate;
+        this.minRate = builder.minRate;
+        this.maxRate = builder.maxRate;
+        this.increase = builder.increase;
+        this.decrease = builder.decrease;
+        this.burst = builder.burst;
+        this.maxRetries = builder.maxRetries;
+        this.configuration = builder.getConfiguration();
+        this.storedTokens = builder.burst;
+        this.nextFreeNanos = System.nanoTime();
+        this.lastDecreaseNanos = nextFreeNanos - 1;
+    }
+
+    /**
+     * The rate limiter shared by all endpoints calling SMAPI for the given skill. If the skill has none yet
+     * it gets one with the default configuration.
+     * @param skillId the skill id
+     * @return rate limiter of the skill
+     */
+    public static AlexaApiRateLimiter getInstance(final String skillId) {
+        return rateLimiters.computeIfAbsent(skillId, key -> create().build());
+    }
+
+    /**
+     * The rate limiter shared by all endpoints calling SMAPI for the given skill. As all endpoints of a skill
+     * share one rate limiter, the first configuration given for it wins. Endpoints may repeat the very same
+     * configuration but are rejected if they configure it differently.
+     * @param skillId the skill id
+     * @param builder configuration used if the skill has no rate limiter yet
+     * @return rate limiter of the skill
+     */
+    public static AlexaApiRateLimiter getInstance(final String skillId, final AlexaApiRateLimiterBuilder builder) {
+        final AlexaApiRateLimiter rateLimiter = rateLimiters.computeIfAbsent(skillId, key -> builder.build());
+        final List<Object> requested = builder.getConfiguration();
+        if (!rateLimiter.configuration.equals(requested)) {
+            final String msg = String.format("Skill %1$s already has a rate limiter with rate, minRate, maxRate, increase, decrease, burst and maxRetries set to %2$s. The rateLimit node asks for %3$s.",
+                    skillId, rateLimiter.configuration, requested);
+            log.error(String.format("[ERROR] %s", msg));
+            throw new RuntimeException(msg);
+        }
+        return rateLimiter;
+    }
+
+    /**
+     * Waits for the next token.
+     * @return the time the token was handed out at, to be given to onThrottled
+     */
+    public long acquire() {
+        final long nowNanos = System.nanoTime();
+        final long tokenNanos;
+        synchronized (this) {
+            tokenNanos = reserve(nowNanos);
+        }
+        if (tokenNanos - nowNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(tokenNanos - nowNanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("[ERROR] Interrupted while waiting for the SMAPI rate limit.", e);
+            }
+        }
+        return tokenNanos;
+    }
+
+    /**
+     * Reserves the next token without waiting for it.
+     * @return future completing once the token is due with the time it was handed out at, to be given to onThrottled
+     */
+    public CompletableFuture<Long> acquireAsync() {
+        final long nowNanos = System.nanoTime();
+        final long tokenNanos;
+        synchronized (this) {
+            tokenNanos = reserve(nowNanos);
+        }
+        if (tokenNanos - nowNanos <= 0) {
+            return CompletableFuture.completedFuture(tokenNanos);
+        }
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        SchedulerHolder.SCHEDULER.schedule(() -> future.complete(tokenNanos), tokenNanos - nowNanos, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    private long reserve(final long nowNanos) {
+        final double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        // tokens accumulated while no one asked for them
+        if (nowNanos - nextFreeNanos > 0) {
+            storedTokens = Math.min(burst, storedTokens + (nowNanos - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = nowNanos;
+        }
+        final long tokenNanos = nextFreeNanos;
+        final double fromStored = Math.min(1.0, storedTokens);
+        storedTokens -= fromStored;
+        nextFreeNanos += (long)((1.0 - fromStored) * intervalNanos);
+
+        if (acquired++ == 0) {
+            firstAcquiredNanos = tokenNanos;
+        }
+        lastAcquiredNanos = tokenNanos;
+        return tokenNanos;
+    }
+
+    /**
+     * Raises the rate after SMAPI accepted a call. Calls made at the current rate for a second raise it by the increase.
+     */
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + increase / rate);
+    }
+
+    /**
+     * Cuts the rate after SMAPI throttled a call and holds back tokens for the time SMAPI asked to retry after.
+     * Calls which got their token before the rate was last cut were made at the old rate, so their
+     * rejection does not cut it again.
+     * @param tokenNanos the time the throttled call got its token at as returned by acquire
+     * @param retryAfterMillis milliseconds to wait before the next call, 0 if SMAPI did not tell
+     */
+    public void onThrottled(final long tokenNanos, final long retryAfterMillis) {
+        throttled.increment();
+        AlexaMetrics.getInstance().increment(AlexaMetrics.SMAPI_THROTTLED);
+        final double newRate;
+        synchronized (this) {
+            final long nowNanos = System.nanoTime();
+            storedTokens = 0;
+            if (nowNanos + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis) - nextFreeNanos > 0) {
+                nextFreeNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis);
+            }
+            if (tokenNanos - lastDecreaseNanos <= 0) {
+                return;
+            }
+            rate = Math.max(minRate, rate * decrease);
+            lastDecreaseNanos = nowNanos;
+            newRate = rate;
+        }
+        log.info(String.format(Locale.ROOT, "[INFO] SMAPI throttled calls. Rate limit lowered to %.2f calls per second.", newRate));
+    }
+
+    /**
+     * Number of times a call throttled by SMAPI is made again before it fails.
+     * @return maximum retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Calls per second currently allowed.
+     * @return rate
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Calls per second actually made from the first to the latest token handed out.
+     * @return effective rate, 0 if less than two tokens were handed out
+     */
+    public synchronized double getEffectiveRate() {
+        final long elapsedNanos = lastAcquiredNanos - firstAcquiredNanos;
+        return acquired > 1 && elapsedNanos > 0 ? (acquired - 1) * (double)TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0.0;
+    }
+
+    public synchronized long getAcquiredCount() {
+        return acquired;
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    public String getReport() {
+        return String.format(Locale.ROOT, "SMAPI rate limit: %1$.2f calls per second allowed, %2$.2f effective, %3$s calls, %4$s throttled.",
+                getRate(), getEffectiveRate(), getAcquiredCount(), getThrottledCount());
+    }
+
+    public static AlexaApiRateLimiterBuilder create() {
+        return new AlexaApiRateLimiterBuilder();
+    }
+
+    public static AlexaApiRateLimiterBuilder create(final HashMap<Object, Object> rateLimitConfiguration) {
+        return new AlexaApiRateLimiterBuilder(rateLimitConfiguration);
+    }
+
+    public static class AlexaApiRateLimiterBuilder {
+        double rate = DEFAULT_RATE;
+        double minRate = DEFAULT_MIN_RATE;
+        double maxRate = DEFAULT_MAX_RATE;
+        double increase = DEFAULT_INCREASE;
+        double decrease = DEFAULT_DECREASE;
+        int burst = DEFAULT_BURST;
+        int maxRetries = DEFAULT_MAX_RETRIES;
+
+        AlexaApiRateLimiterBuilder() {
+        }
+
+        AlexaApiRateLimiterBuilder(final HashMap<Object, Object> rateLimitConfiguration) {
+            getString(rateLimitConfiguration, "rate").map(Double::valueOf).ifPresent(this::withRate);
+            getString(rateLimitConfiguration, "minRate").map(Double::valueOf).ifPresent(this::withMinRate);
+            getString(rateLimitConfiguration, "maxRate").map(Double::valueOf).ifPresent(this::withMaxRate);
+            getString(rateLimitConfiguration, "increase").map(Double::valueOf).ifPresent(this::withIncrease);
+            getString(rateLimitConfiguration, "decrease").map(Double::valueOf).ifPresent(this::withDecrease);
+            getString(rateLimitConfiguration, "burst").map(Integer::valueOf).ifPresent(this::withBurst);
+            getString(rateLimitConfiguration, "maxRetries").map(Integer::valueOf).ifPresent(this::withMaxRetries);
+        }
+
+        private static Optional<String> getString(final HashMap<Object, Object> yNode, final String key) {
+            return Optional.ofNullable(yNode.get(key)).map(Object::toString);
+        }
+
+        /**
+         * Calls per second allowed at first. Defaults to 5.
+         * @param rate calls per second
+         * @return builder
+         */
+        public AlexaApiRateLimiterBuilder withRate(final double rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        public AlexaApiRateLimiterBuilder withMinRate(final double minRate) {
+            this.minRate = minRate;
+            return this;
+        }
+
+        public AlexaApiRateLimiterBuilder withMaxRate(final double maxRate) {
+            this.maxRate = maxRate;
+            return this;
+        }
+
+        /**
+         * Calls per second the rate grows by each second calls succeed. Defaults to 1.
+         * @param increase calls per second
+         * @return builder
+         */
+        public AlexaApiRateLimiterBuilder withIncrease(final double increase) {
+            this.increase = increase;
+            return this;
+        }
+
+        /**
+         * Factor the rate is multiplied with when SMAPI throttles. Defaults to 0.5.
+         * @param decrease factor between 0 and 1
+         * @return builder
+         */
+        public AlexaApiRateLimiterBuilder withDecrease(final double decrease) {
+            this.decrease = decrease;
+            return this;
+        }
+
+        /**
+         * Number of unused tokens kept for calls arriving at once. Defaults to 5.
+         * @param burst number of tokens
+         * @return builder
+         */
+        public AlexaApiRateLimiterBuilder withBurst(final int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        public AlexaApiRateLimiterBuilder withMaxRetries(final int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        List<Object> getConfiguration() {
+            return Arrays.asList(rate, minRate, maxRate, increase, decrease, burst, maxRetries);
+        }
+
+        public AlexaApiRateLimiter build() {
+            Validate.isTrue(minRate > 0, "Minimum rate must be greater than zero.");
+            Validate.isTrue(maxRate >= minRate, "Maximum rate must not be less than the minimum rate.");
+            Validate.inclusiveBetween(minRate, maxRate, rate, "Rate must be between the minimum and maximum rate.");
+            Validate.isTrue(increase >= 0, "Increase must not be negative.");
+            Validate.isTrue(decrease > 0 && decrease <= 1.0, "Decrease must be greater than 0 and not greater than 1.");
+            Validate.isTrue(burst >= 0, "Burst must not be negative.");
+            Validate.isTrue(maxRetries >= 0, "Maximum retries must not be negative.");
+            return new AlexaApiRateLimiter(this);
+        }
+    }
+}
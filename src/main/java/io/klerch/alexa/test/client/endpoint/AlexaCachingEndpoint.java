@@ -0,0 +1,239 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.klerch.alexa.test.client.AlexaTrace;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of another endpoint for skills which respond to identical requests in the same way.
+ * Requests are identical if their envelopes are equal without requestId, timestamp, sessionId and the ids
+ * generated by the client, so the same intent with the same slots and session attributes is only sent to
+ * the skill once. The least recently used responses are evicted once the cache is full and each response
+ * can expire after a time to live. Identical requests arriving while the first one is still outstanding
+ * wait for its response instead of calling the skill again.
+ */
+public class AlexaCachingEndpoint implements AlexaEndpoint {
+    private final static Logger log = Logger.getLogger(AlexaCachingEndpoint.class);
+    private final static int DEFAULT_MAX_SIZE = 1000;
+    private final AlexaEndpoint endpoint;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final AlexaRequestNormalizer normalizer;
+    private final Map<String, Entry> cache;
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static class Entry {
+        private final byte[] responsePayload;
+        private final long expiresAtNanos;
+
+        private Entry(final byte[] responsePayload, final long expiresAtNanos) {
+            this.responsePayload = responsePayload;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    AlexaCachingEndpoint(final AlexaCachingEndpointBuilder builder) {
+        this.endpoint = builder.endpoint;
+        this.maxSize = builder.maxSize;
+        this.ttlNanos = builder.ttlNanos;
+        this.normalizer = new AlexaRequestNormalizer(new ObjectMapper(), AlexaRequestNormalizer.DEFAULT_IGNORED_FIELDS);
+        // access order makes the eldest entry the least recently used one
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The endpoint whose responses are cached.
+     * @return endpoint
+     */
+    public AlexaEndpoint getEndpoint() {
+        return this.endpoint;
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Requests which were not in the cache but waited for an identical request already sent to the skill.
+     * @return number of coalesced requests
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public String getReport() {
+        return String.format("Response cache: %1$s hits, %2$s misses, %3$s coalesced, %4$s evictions, %5$s of %6$s entries used.",
+                getHits(), getMisses(), getCoalesced(), getEvictions(), getSize(), maxSize);
+    }
+
+    public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+        try {
+            return fire(request, payload, () -> CompletableFuture.completedFuture(endpoint.fire(request, payload))).join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+        return fire(request, payload, () -> endpoint.fireAsync(request, payload));
+    }
+
+    private CompletableFuture<Optional<AlexaResponse>> fire(final AlexaRequest request, final String payload, final Supplier<CompletableFuture<Optional<AlexaResponse>>> call) {
+        final String key = normalizer.normalize(request, payload);
+        final Entry cached = get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            if (AlexaTrace.isEnabled(log, request.getSession())) {
+                log.info("->[INFO] Response served from cache.");
+            }
+            return CompletableFuture.completedFuture(toResponse(request, payload, cached));
+        }
+
+        final CompletableFuture<Entry> pending = new CompletableFuture<>();
+        final CompletableFuture<Entry> outstanding = inFlight.putIfAbsent(key, pending);
+        if (outstanding != null) {
+            coalesced.incrementAndGet();
+            return outstanding.thenApply(entry -> toResponse(request, payload, entry));
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Optional<AlexaResponse>> response;
+        try {
+            response = call.get();
+        } catch (final RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        return response.whenComplete((r, e) -> {
+            if (e != null) {
+                // failures are not cached, the next identical request calls the skill again
+                inFlight.remove(key, pending);
+                pending.completeExceptionally(e);
+            } else {
+                final Entry entry = new Entry(r.map(AlexaResponse::getResponsePayload).map(p -> p.getBytes(StandardCharsets.UTF_8)).orElse(null),
+                        System.nanoTime() + ttlNanos);
+                put(key, entry);
+                inFlight.remove(key, pending);
+                pending.complete(entry);
+            }
+        });
+    }
+
+    private Entry get(final String key) {
+        synchronized (cache) {
+            final Entry entry = cache.get(key);
+            if (entry != null && ttlNanos > 0 && entry.expiresAtNanos - System.nanoTime() < 0) {
+                // expired entries count as evicted
+                cache.remove(key);
+                evictions.incrementAndGet();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void put(final String key, final Entry entry) {
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    private static Optional<AlexaResponse> toResponse(final AlexaRequest request, final String payload, final Entry entry) {
+        return request.expectsResponse() && entry.responsePayload != null ?
+                Optional.of(new AlexaResponse(request, payload, entry.responsePayload)) : Optional.empty();
+    }
+
+    static AlexaCachingEndpointBuilder create(final AlexaEndpoint endpoint, final HashMap<Object, Object> cacheConfiguration) {
+        final AlexaCachingEndpointBuilder builder = create(endpoint);
+        Optional.ofNullable(cacheConfiguration.get("maxSize")).map(Object::toString).map(Integer::valueOf).ifPresent(builder::withMaxSize);
+        Optional.ofNullable(cacheConfiguration.get("ttl")).map(Object::toString).map(Long::valueOf).ifPresent(ttl -> builder.withTtl(ttl, TimeUnit.SECONDS));
+        return builder;
+    }
+
+    public static AlexaCachingEndpointBuilder create(final AlexaEndpoint endpoint) {
+        return new AlexaCachingEndpointBuilder(endpoint);
+    }
+
+    public static class AlexaCachingEndpointBuilder {
+        AlexaEndpoint endpoint;
+        int maxSize = DEFAULT_MAX_SIZE;
+        long ttlNanos;
+
+        AlexaCachingEndpointBuilder(final AlexaEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Number of responses kept in the cache. Defaults to 1000.
+         * @param maxSize maximum number of entries
+         * @return builder
+         */
+        public AlexaCachingEndpointBuilder withMaxSize(final int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Time after which a cached response is no longer served. By default responses do not expire.
+         * @param ttl time to live
+         * @param unit unit of ttl
+         * @return builder
+         */
+        public AlexaCachingEndpointBuilder withTtl(final long ttl, final TimeUnit unit) {
+            this.ttlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        public AlexaCachingEndpoint build() {
+            Validate.notNull(endpoint, "Endpoint to cache must not be null.");
+            Validate.isTrue(maxSize > 0, "Cache size must be greater than zero.");
+            Validate.isTrue(ttlNanos >= 0, "Time to live of cached responses must not be negative.");
+
+            return new AlexaCachingEndpoint(this);
+        }
+    }
+}
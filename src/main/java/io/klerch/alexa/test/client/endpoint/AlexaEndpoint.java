@@ -4,7 +4,25 @@ import io.klerch.alexa.test.request.AlexaRequest;
 import io.klerch.alexa.test.response.AlexaResponse;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface AlexaEndpoint {
     Optional<AlexaResponse> fire(final AlexaRequest request, final String payload);
+
+    /**
+     * Fires the request without waiting for the response. Endpoints that cannot do this natively
+     * fall back to this default which blocks the caller and returns a completed future.
+     * @param request the request
+     * @param payload the request payload
+     * @return future completing with the skill's response
+     */
+    default CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+        final CompletableFuture<Optional<AlexaResponse>> future = new CompletableFuture<>();
+        try {
+            future.complete(fire(request, payload));
+        } catch (final RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
 }
@@ -0,0 +1,19 @@
+package io.klerch.alexa.test.client.endpoint;
+
+/**
+ * Thrown if a remote endpoint answered with an HTTP status code other than success, so callers can tell
+ * a skill that is down or throttling from one that rejected the request.
+ */
+public class AlexaEndpointException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final int statusCode;
+
+    public AlexaEndpointException(final int statusCode, final String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -1,5 +1,6 @@
 package io.klerch.alexa.test.client.endpoint;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
 import java.lang.reflect.InvocationTargetException;
@@ -19,13 +20,38 @@ public class AlexaEndpointFactory {
                     .getDeclaredMethod("create", HashMap.class)
                     .invoke(null, endpointConfiguration);
             // call build method to get the endpoint class
-            return (AlexaEndpoint)endpointBuilder.getClass()
+            final AlexaEndpoint endpoint = (AlexaEndpoint)endpointBuilder.getClass()
                     .getMethod("build")
                     .invoke(endpointBuilder);
+            return decorate(endpoint, endpointConfiguration);
         } catch (final IllegalAccessException | InvocationTargetException| NoSuchMethodException | ClassNotFoundException e) {
             final String msg = String.format("Could not create endpoint of type %1$s. %2$s caused an error: %3$s", endpointType, className, e.getMessage());
             log.error(msg);
             throw new RuntimeException(msg, e);
         }
     }
+
+    private static AlexaEndpoint decorate(final AlexaEndpoint endpoint, final HashMap<Object, Object> endpointConfiguration) {
+        AlexaEndpoint decorated = endpoint;
+        // retry closest to the endpoint so the recorder and cache only see the outcome of a call
+        final Object yResilience = endpointConfiguration.get("resilience");
+        if (yResilience instanceof HashMap) {
+            decorated = AlexaResilientEndpoint.create(decorated, (HashMap<Object, Object>)yResilience).build();
+        } else if (yResilience != null && Boolean.parseBoolean(yResilience.toString())) {
+            decorated = AlexaResilientEndpoint.create(decorated).build();
+        }
+        // record all calls to the endpoint if a file is given
+        final Object yRecord = endpointConfiguration.get("record");
+        if (yRecord != null && StringUtils.isNotBlank(yRecord.toString())) {
+            decorated = AlexaRecordingEndpoint.create(decorated, yRecord.toString()).build();
+        }
+        // cache in front of the recorder so only actual calls to the skill are recorded
+        final Object yCache = endpointConfiguration.get("cache");
+        if (yCache instanceof HashMap) {
+            decorated = AlexaCachingEndpoint.create(decorated, (HashMap<Object, Object>)yCache).build();
+        } else if (yCache != null && Boolean.parseBoolean(yCache.toString())) {
+            decorated = AlexaCachingEndpoint.create(decorated).build();
+        }
+        return decorated;
+    }
 }
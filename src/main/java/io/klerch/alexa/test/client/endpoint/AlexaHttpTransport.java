@@ -0,0 +1,203 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The HTTP transport holds a pool of keep-alive connections used to talk to SMAPI and Login with Amazon.
+ * Unless configured otherwise all API endpoints share one default transport. Asynchronous callers hand their
+ * calls over to the workers of the transport, of which there are as many as connections per route.
+ */
+public class AlexaHttpTransport implements Closeable {
+    private final static Logger log = Logger.getLogger(AlexaHttpTransport.class);
+    private static final int DEFAULT_MAX_CONNECTIONS = 200;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+    private static final long DEFAULT_KEEP_ALIVE_MILLIS = 30000L;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 30000;
+    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS = 30000;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final static AtomicInteger workerThreadCount = new AtomicInteger();
+    private final ThreadPoolExecutor workers;
+
+    private static class DefaultHolder {
+        private static final AlexaHttpTransport DEFAULT = create().build();
+    }
+
+    AlexaHttpTransport(final AlexaHttpTransportBuilder builder) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(builder.maxConnections);
+        this.connectionManager.setDefaultMaxPerRoute(builder.maxConnectionsPerRoute);
+
+        final RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(builder.connectTimeoutMillis)
+                .setSocketTimeout(builder.socketTimeoutMillis)
+                .setConnectionRequestTimeout(builder.connectionRequestTimeoutMillis)
+                .build();
+
+        final long keepAliveMillis = builder.keepAliveMillis;
+        // honor the keep-alive period sent by the server and fall back to the configured one
+        final ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            final long serverKeepAliveMillis = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAliveMillis > 0 ? Math.min(serverKeepAliveMillis, keepAliveMillis) : keepAliveMillis;
+        };
+
+        this.httpClient = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        // a call cannot proceed without a connection, so further workers would only wait for one
+        this.workers = new ThreadPoolExecutor(builder.maxConnectionsPerRoute, builder.maxConnectionsPerRoute, keepAliveMillis, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-http-" + workerThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The transport shared by all API endpoints which were not given a transport of their own.
+     * @return default transport
+     */
+    public static AlexaHttpTransport getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Executes the request on a pooled connection. The response entity is read into memory
+     * so the connection is released to the pool before this method returns.
+     * @param request the request
+     * @return the response with a buffered entity
+     * @throws IOException in case of a problem or the connection was aborted
+     */
+    public HttpResponse execute(final HttpUriRequest request) throws IOException {
+        try (final CloseableHttpResponse response = httpClient.execute(request)) {
+            if (response.getEntity() != null) {
+                response.setEntity(new BufferedHttpEntity(response.getEntity()));
+            }
+            return response;
+        }
+    }
+
+    /**
+     * The workers making blocking calls for asynchronous callers. Calls beyond the number of connections
+     * per route are queued rather than waiting for a connection on a thread of their own.
+     * @return executor
+     */
+    public Executor getExecutor() {
+        return workers;
+    }
+
+    /**
+     * Statistics of the connection pool e.g. the number of leased, pending and available connections.
+     * @return pool statistics
+     */
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.debug(String.format("[DEBUG] Close HTTP transport. %s", getStats()));
+        workers.shutdownNow();
+        httpClient.close();
+    }
+
+    public static AlexaHttpTransportBuilder create() {
+        return new AlexaHttpTransportBuilder();
+    }
+
+    public static AlexaHttpTransportBuilder create(final HashMap<Object, Object> httpConfiguration) {
+        return new AlexaHttpTransportBuilder(httpConfiguration);
+    }
+
+    public static class AlexaHttpTransportBuilder {
+        int maxConnections = DEFAULT_MAX_CONNECTIONS;
+        int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+        int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        int socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+        int connectionRequestTimeoutMillis = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS;
+
+        AlexaHttpTransportBuilder() {
+        }
+
+        AlexaHttpTransportBuilder(final HashMap<Object, Object> httpConfiguration) {
+            getInt(httpConfiguration, "maxConnections").ifPresent(this::withMaxConnections);
+            getInt(httpConfiguration, "maxConnectionsPerRoute").ifPresent(this::withMaxConnectionsPerRoute);
+            getInt(httpConfiguration, "keepAlive").ifPresent(seconds -> withKeepAliveMillis(TimeUnit.SECONDS.toMillis(seconds)));
+            getInt(httpConfiguration, "connectTimeout").ifPresent(this::withConnectTimeoutMillis);
+            getInt(httpConfiguration, "socketTimeout").ifPresent(this::withSocketTimeoutMillis);
+            getInt(httpConfiguration, "connectionRequestTimeout").ifPresent(this::withConnectionRequestTimeoutMillis);
+        }
+
+        private static Optional<Integer> getInt(final HashMap<Object, Object> yNode, final String key) {
+            return Optional.ofNullable(yNode.get(key)).map(Object::toString).map(Integer::valueOf);
+        }
+
+        public AlexaHttpTransportBuilder withMaxConnections(final int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public AlexaHttpTransportBuilder withMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        public AlexaHttpTransportBuilder withKeepAliveMillis(final long keepAliveMillis) {
+            this.keepAliveMillis = keepAliveMillis;
+            return this;
+        }
+
+        public AlexaHttpTransportBuilder withConnectTimeoutMillis(final int connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            return this;
+        }
+
+        public AlexaHttpTransportBuilder withSocketTimeoutMillis(final int socketTimeoutMillis) {
+            this.socketTimeoutMillis = socketTimeoutMillis;
+            return this;
+        }
+
+        public AlexaHttpTransportBuilder withConnectionRequestTimeoutMillis(final int connectionRequestTimeoutMillis) {
+            this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+            return this;
+        }
+
+        public AlexaHttpTransport build() {
+            Validate.isTrue(maxConnections > 0, "Maximum number of connections must be greater than zero.");
+            Validate.isTrue(maxConnectionsPerRoute > 0, "Maximum number of connections per route must be greater than zero.");
+            Validate.isTrue(keepAliveMillis > 0, "Keep-alive period must be greater than zero.");
+            return new AlexaHttpTransport(this);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.apache.commons.lang3.Validate;
-import org.apache.http.HttpResponse;
 
 import java.util.HashMap;
 
@@ -39,11 +38,10 @@ public class AlexaInvocationApiEndpoint extends AlexaApiEndpoint {
     }
 
     @Override
-    HttpResponse fire(final String payload) {
+    String getRequestPayload(final String payload) {
         try {
             // inject payload
-            final String requestPayload = om.writeValueAsString(this).replace("\"" + skillRequest.body + "\"", payload);
-            return super.fire(requestPayload);
+            return om.writeValueAsString(this).replace("\"" + skillRequest.body + "\"", payload);
         } catch (final JsonProcessingException e) {
             throw new RuntimeException("Could not build request for Invocation API.", e);
         }
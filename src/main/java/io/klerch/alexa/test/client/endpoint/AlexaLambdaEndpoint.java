@@ -1,16 +1,20 @@
 package io.klerch.alexa.test.client.endpoint;
 
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.services.lambda.AWSLambda;
-import com.amazonaws.services.lambda.AWSLambdaClient;
+import com.amazonaws.services.lambda.AWSLambdaAsync;
+import com.amazonaws.services.lambda.AWSLambdaAsyncClient;
 import com.amazonaws.services.lambda.model.InvocationType;
 import com.amazonaws.services.lambda.model.InvokeRequest;
 import com.amazonaws.services.lambda.model.InvokeResult;
+import io.klerch.alexa.test.client.AlexaTrace;
 import io.klerch.alexa.test.request.AlexaRequest;
 import io.klerch.alexa.test.response.AlexaResponse;
 import org.apache.commons.lang3.Validate;
 import org.apache.log4j.Logger;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class AlexaLambdaEndpoint implements AlexaEndpoint {
     private final static Logger log = Logger.getLogger(AlexaLambdaEndpoint.class);
@@ -31,16 +35,59 @@ public class AlexaLambdaEndpoint implements AlexaEndpoint {
     }
 
     public Optional<AlexaResponse> fire(AlexaRequest request, String payload) {
+        final InvokeRequest invokeRequest = getInvokeRequest(request, payload);
+        return getResponse(request, payload, lambdaClient.invoke(invokeRequest));
+    }
+
+    /**
+     * Invokes the Lambda function with the asynchronous Lambda client so the caller is not blocked
+     * while waiting for the function to return. If the endpoint was given a synchronous client only
+     * it falls back to a blocking call.
+     * @param request the request
+     * @param payload the request payload
+     * @return future completing with the skill's response
+     */
+    @Override
+    public CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+        if (!(lambdaClient instanceof AWSLambdaAsync)) {
+            return AlexaEndpoint.super.fireAsync(request, payload);
+        }
+        final CompletableFuture<Optional<AlexaResponse>> future = new CompletableFuture<>();
+        ((AWSLambdaAsync)lambdaClient).invokeAsync(getInvokeRequest(request, payload), new AsyncHandler<InvokeRequest, InvokeResult>() {
+            @Override
+            public void onError(final Exception e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onSuccess(final InvokeRequest invokeRequest, final InvokeResult invokeResult) {
+                try {
+                    future.complete(getResponse(request, payload, invokeResult));
+                } catch (final RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
+
+    private InvokeRequest getInvokeRequest(final AlexaRequest request, final String payload) {
         final InvocationType invocationType = request.expectsResponse() ? InvocationType.RequestResponse : InvocationType.Event;
-        final InvokeRequest invokeRequest = new InvokeRequest()
+        if (AlexaTrace.isEnabled(log, request.getSession())) {
+            log.info(String.format("->[INFO] Invoke lambda function '%s'.", lambdaFunctionName));
+        }
+        if (AlexaTrace.isDebugEnabled(log, request.getSession())) {
+            log.debug(String.format("->[INFO] with request payload '%s'.", payload));
+        }
+        return new InvokeRequest()
                 .withInvocationType(invocationType)
                 .withFunctionName(lambdaFunctionName)
                 .withPayload(payload);
-        log.info(String.format("->[INFO] Invoke lambda function '%s'.", lambdaFunctionName));
-        log.debug(String.format("->[INFO] with request payload '%s'.", payload));
-        final InvokeResult invokeResult = lambdaClient.invoke(invokeRequest);
-        return invocationType.equals(InvocationType.RequestResponse) ?
-                Optional.of(new AlexaResponse(request, payload, new String(invokeResult.getPayload().array()))) : Optional.empty();
+    }
+
+    private Optional<AlexaResponse> getResponse(final AlexaRequest request, final String payload, final InvokeResult invokeResult) {
+        return request.expectsResponse() ?
+                Optional.of(new AlexaResponse(request, payload, invokeResult.getPayload().array())) : Optional.empty();
     }
 
     public static AlexaLambdaEndpointBuilder create(final String lambdaFunctionName) {
@@ -64,7 +111,8 @@ public class AlexaLambdaEndpoint implements AlexaEndpoint {
             Validate.notBlank(lambdaFunctionName, "Lambda function name must not be empty.");
 
             if (lambdaClient == null) {
-                lambdaClient = new AWSLambdaClient();
+                // the async client serves blocking calls as well
+                lambdaClient = new AWSLambdaAsyncClient();
             }
 
             return new AlexaLambdaEndpoint(this);
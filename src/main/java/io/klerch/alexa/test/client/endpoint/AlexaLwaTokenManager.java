@@ -0,0 +1,312 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.klerch.alexa.test.client.AlexaMetrics;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The token manager caches the Login with Amazon access token for a set of LWA credentials and
+ * is shared by all endpoints using these credentials and the same HTTP transport. It refreshes the token
+ * in the background before it expires. Only one refresh runs at a time, callers needing a token meanwhile wait for it.
+ * Once the last endpoint using it released it, the background refresh stops and the instance is no longer shared.
+ */
+public class AlexaLwaTokenManager {
+    private final static Logger log = Logger.getLogger(AlexaLwaTokenManager.class);
+    private static final String LWA_TOKEN_URL = "https://api.amazon.com/auth/o2/token";
+    private static final long MAX_REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final ObjectMapper om = new ObjectMapper();
+    private static final ConcurrentMap<Key, AlexaLwaTokenManager> tokenManagers = new ConcurrentHashMap<>();
+    private static final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "alexa-lwa-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String lwaClientId;
+    private final String lwaClientSecret;
+    private final String lwaRefreshToken;
+    private final AlexaHttpTransport httpTransport;
+    private final Key key;
+    // guarded by the map entry of the key
+    private int users;
+    private volatile boolean released;
+    private final AtomicReference<ScheduledFuture<?>> scheduledRefresh = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<AccessToken>> pendingRefresh = new AtomicReference<>();
+    private volatile AccessToken accessToken;
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder refreshNanos = new LongAdder();
+    private volatile long lastRefreshMillis;
+
+    private static class Key {
+        private final String lwaClientId;
+        private final String lwaClientSecretHash;
+        private final String lwaRefreshToken;
+        private final AlexaHttpTransport httpTransport;
+
+        private Key(final String lwaClientId, final String lwaClientSecret, final String lwaRefreshToken, final AlexaHttpTransport httpTransport) {
+            this.lwaClientId = lwaClientId;
+            // the secret itself is not kept as part of the key
+            this.lwaClientSecretHash = sha256(lwaClientSecret);
+            this.lwaRefreshToken = lwaRefreshToken;
+            this.httpTransport = httpTransport;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key)o;
+            // transports are equal if they are the same instance
+            return httpTransport == other.httpTransport && Objects.equals(lwaClientId, other.lwaClientId) &&
+                    Objects.equals(lwaClientSecretHash, other.lwaClientSecretHash) && Objects.equals(lwaRefreshToken, other.lwaRefreshToken);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lwaClientId, lwaClientSecretHash, lwaRefreshToken, System.identityHashCode(httpTransport));
+        }
+
+        private static String sha256(final String value) {
+            try {
+                final byte[] hash = MessageDigest.getInstance("SHA-256").digest(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                return Base64.getEncoder().encodeToString(hash);
+            } catch (final NoSuchAlgorithmException e) {
+                throw new RuntimeException("[ERROR] SHA-256 is not supported. " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static class AccessToken {
+        private final String value;
+        // in terms of System.nanoTime(). a token without expiry is used until it gets rejected
+        private final long expiresAtNanos;
+        private final boolean expires;
+
+        private AccessToken(final String value, final long expiresInMillis) {
+            this.value = value;
+            this.expires = expiresInMillis > 0;
+            this.expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(expiresInMillis);
+        }
+
+        private boolean isExpired() {
+            return expires && System.nanoTime() - expiresAtNanos >= 0;
+        }
+    }
+
+    AlexaLwaTokenManager(final Key key, final String lwaClientId, final String lwaClientSecret, final String lwaRefreshToken, final AlexaHttpTransport httpTransport) {
+        this.key = key;
+        this.lwaClientId = lwaClientId;
+        this.lwaClientSecret = lwaClientSecret;
+        this.lwaRefreshToken = lwaRefreshToken;
+        this.httpTransport = httpTransport;
+        // an access token given as system property is used until it gets rejected
+        Optional.ofNullable(System.getProperty(AlexaApiEndpoint.LWA_ACCESS_TOKEN_PROPERTY))
+                .filter(StringUtils::isNotBlank)
+                .ifPresent(token -> this.accessToken = new AccessToken(token, 0));
+    }
+
+    /**
+     * Returns the token manager for the given LWA credentials and transport. Endpoints with the same credentials
+     * and transport share the same instance and thus the same access token. Callers must {@link #release()} it once done.
+     * @param lwaClientId LWA client id
+     * @param lwaClientSecret LWA client secret
+     * @param lwaRefreshToken LWA refresh token
+     * @param httpTransport transport used to talk to Login with Amazon
+     * @return token manager
+     */
+    public static AlexaLwaTokenManager getInstance(final String lwaClientId, final String lwaClientSecret, final String lwaRefreshToken, final AlexaHttpTransport httpTransport) {
+        return tokenManagers.compute(new Key(lwaClientId, lwaClientSecret, lwaRefreshToken, httpTransport), (key, tokenManager) -> {
+            final AlexaLwaTokenManager current = tokenManager != null ? tokenManager : new AlexaLwaTokenManager(key, lwaClientId, lwaClientSecret, lwaRefreshToken, httpTransport);
+            current.users++;
+            return current;
+        });
+    }
+
+    /**
+     * Gives up one use of this token manager. After the last one it stops refreshing in the background
+     * and the next call to {@link #getInstance} returns a new instance.
+     */
+    public void release() {
+        tokenManagers.computeIfPresent(key, (k, tokenManager) -> {
+            if (tokenManager != this || --users > 0) {
+                return tokenManager;
+            }
+            released = true;
+            Optional.ofNullable(scheduledRefresh.getAndSet(null)).ifPresent(future -> future.cancel(false));
+            return null;
+        });
+    }
+
+    /**
+     * Returns a valid access token. Only if there is none or it expired the caller waits for a refresh.
+     * @return access token
+     */
+    public String getAccessToken() {
+        final AccessToken token = this.accessToken;
+        return token != null && !token.isExpired() ? token.value : awaitRefresh();
+    }
+
+    /**
+     * Returns an access token after the given one got rejected by SMAPI. If another caller already
+     * replaced the rejected token the new one is returned without another refresh.
+     * @param rejectedToken the token rejected with 401
+     * @return access token
+     */
+    public String getAccessTokenAfterUnauthorized(final String rejectedToken) {
+        final AccessToken token = this.accessToken;
+        return token != null && !token.isExpired() && !token.value.equals(rejectedToken) ? token.value : awaitRefresh();
+    }
+
+    /**
+     * Refreshes the access token. If a refresh is already running the caller joins it rather
+     * than starting another one.
+     * @return future completing with the new access token
+     */
+    public CompletableFuture<String> refresh() {
+        while (true) {
+            final CompletableFuture<AccessToken> running = pendingRefresh.get();
+            if (running != null) {
+                return running.thenApply(token -> token.value);
+            }
+            final CompletableFuture<AccessToken> refresh = new CompletableFuture<>();
+            if (pendingRefresh.compareAndSet(null, refresh)) {
+                try {
+                    final AccessToken token = requestAccessToken();
+                    this.accessToken = token;
+                    refresh.complete(token);
+                    scheduleRefresh(token);
+                } catch (final RuntimeException e) {
+                    refreshFailures.increment();
+                    AlexaMetrics.getInstance().increment(AlexaMetrics.LWA_TOKEN_REFRESH_FAILURES);
+                    refresh.completeExceptionally(e);
+                } finally {
+                    pendingRefresh.compareAndSet(refresh, null);
+                }
+                return refresh.thenApply(token -> token.value);
+            }
+        }
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.sum();
+    }
+
+    /**
+     * Average time it took Login with Amazon to return a new access token.
+     * @return milliseconds
+     */
+    public double getAverageRefreshMillis() {
+        final long count = refreshCount.sum();
+        return count > 0 ? refreshNanos.sum() / 1_000_000.0 / count : 0.0;
+    }
+
+    /**
+     * Time it took Login with Amazon to return the latest access token.
+     * @return milliseconds
+     */
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    String awaitRefresh() {
+        try {
+            return refresh().join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+        }
+    }
+
+    private void scheduleRefresh(final AccessToken token) {
+        if (token.expires && !released) {
+            final long expiresInMillis = TimeUnit.NANOSECONDS.toMillis(token.expiresAtNanos - System.nanoTime());
+            final long delayMillis = expiresInMillis - Math.min(MAX_REFRESH_AHEAD_MILLIS, expiresInMillis / 2);
+            final ScheduledFuture<?> future = refresher.schedule(() -> {
+                // skip if the token was already replaced in the meantime
+                if (this.accessToken == token && !released) {
+                    try {
+                        refresh().join();
+                    } catch (final CompletionException e) {
+                        log.warn(String.format("[WARN] Background refresh of access token failed. %s", e.getCause().getMessage()));
+                    }
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+            Optional.ofNullable(scheduledRefresh.getAndSet(future)).ifPresent(previous -> previous.cancel(false));
+            // release() may have missed the future just scheduled
+            if (released) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private AccessToken requestAccessToken() {
+        final HttpPost httpPost = new HttpPost(LWA_TOKEN_URL);
+        httpPost.setHeader(HttpHeaders.CONTENT_TYPE,"application/x-www-form-urlencoded;charset=UTF-8");
+
+        httpPost.setHeader(HttpHeaders.ACCEPT,"application/json");
+        httpPost.setHeader(HttpHeaders.ACCEPT_ENCODING,"application/json");
+
+        final List<NameValuePair> nameValuePairs = new ArrayList<>();
+        nameValuePairs.add(new BasicNameValuePair("grant_type", "refresh_token"));
+        nameValuePairs.add(new BasicNameValuePair("refresh_token", lwaRefreshToken));
+        nameValuePairs.add(new BasicNameValuePair("client_id", lwaClientId));
+        nameValuePairs.add(new BasicNameValuePair("client_secret", lwaClientSecret));
+
+        final long startNanos = System.nanoTime();
+        try {
+            httpPost.setEntity(new UrlEncodedFormEntity(nameValuePairs));
+
+            final HttpResponse httpResponse = httpTransport.execute(httpPost);
+            Validate.inclusiveBetween(200, 399, httpResponse.getStatusLine().getStatusCode(), httpResponse.getStatusLine().getReasonPhrase());
+            final String responsePayload = IOUtils.toString(httpResponse.getEntity().getContent(), "UTF-8");
+            final JsonNode token = om.readTree(responsePayload);
+            final String value = Optional.ofNullable(token.get("access_token")).orElseThrow(() -> new RuntimeException("Could not obtain access token from Amazon Login.")).textValue();
+            final long expiresInMillis = Optional.ofNullable(token.get("expires_in")).map(JsonNode::asLong).map(TimeUnit.SECONDS::toMillis).orElse(0L);
+            return new AccessToken(value, expiresInMillis);
+        } catch (final IOException e) {
+            throw new RuntimeException("[ERROR] Error received from Login with Amazon on refreshing an access token. " + e.getMessage(), e);
+        } finally {
+            final long elapsedNanos = System.nanoTime() - startNanos;
+            refreshCount.increment();
+            refreshNanos.add(elapsedNanos);
+            AlexaMetrics.getInstance().record(AlexaMetrics.LWA_TOKEN_REFRESHES, elapsedNanos);
+            lastRefreshMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            log.debug(String.format("[DEBUG] Login with Amazon responded in %s ms.", lastRefreshMillis));
+        }
+    }
+}
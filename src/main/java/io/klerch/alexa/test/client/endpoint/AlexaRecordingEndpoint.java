@@ -0,0 +1,157 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every request going through another endpoint together with the skill's response and the latency
+ * of the call. Recordings are appended to a file with one JSON object per line, which can be served
+ * by an AlexaReplayEndpoint later on. Utterances are recorded with their text and locale. Close the endpoint
+ * once you are done so the file is released. This is done for you when a script started with startScript has finished.
+ */
+public class AlexaRecordingEndpoint implements AlexaEndpoint {
+    private final static Logger log = Logger.getLogger(AlexaRecordingEndpoint.class);
+    final static String REQUEST_FIELD = "request";
+    final static String RESPONSE_FIELD = "response";
+    final static String LATENCY_FIELD = "latencyMicros";
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AlexaRequestNormalizer normalizer = new AlexaRequestNormalizer(mapper, Collections.emptyList());
+    private final AlexaEndpoint endpoint;
+    private final Path file;
+    private final Writer writer;
+    private boolean closed;
+
+    AlexaRecordingEndpoint(final AlexaRecordingEndpointBuilder builder) throws IOException {
+        this.endpoint = builder.endpoint;
+        this.file = builder.file;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * The endpoint whose calls are recorded.
+     * @return endpoint
+     */
+    public AlexaEndpoint getEndpoint() {
+        return this.endpoint;
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+        final long startNanos = System.nanoTime();
+        final Optional<AlexaResponse> response = endpoint.fire(request, payload);
+        record(request, payload, response, System.nanoTime() - startNanos);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+        final long startNanos = System.nanoTime();
+        return endpoint.fireAsync(request, payload).thenApply(response -> {
+            record(request, payload, response, System.nanoTime() - startNanos);
+            return response;
+        });
+    }
+
+    private void record(final AlexaRequest request, final String payload, final Optional<AlexaResponse> response, final long latencyNanos) {
+        final ObjectNode recording = mapper.createObjectNode();
+        try {
+            recording.set(REQUEST_FIELD, normalizer.read(request, payload));
+            recording.set(RESPONSE_FIELD, response.map(this::toJson).orElse(null));
+            recording.put(LATENCY_FIELD, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            final String line = mapper.writeValueAsString(recording);
+            // one line per call, so recordings of concurrent sessions do not interleave
+            synchronized (writer) {
+                if (closed) {
+                    log.warn(String.format("->[WARN] Request not recorded as %s was already closed.", file));
+                    return;
+                }
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (final IOException e) {
+            final String msg = String.format("Could not record request in %s. %s", file, e.getMessage());
+            log.error(String.format("->[ERROR] %s", msg));
+            throw new RuntimeException(msg, e);
+        }
+    }
+
+    /**
+     * Closes the recording file. Calls made afterwards are still forwarded to the endpoint but no longer recorded.
+     */
+    public void close() {
+        synchronized (writer) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                log.warn(String.format("[WARN] Could not close recording file %s. %s", file, e.getMessage()));
+            }
+        }
+    }
+
+    private JsonNode toJson(final AlexaResponse response) {
+        final String payload = response.getResponsePayload();
+        try {
+            return mapper.readTree(payload);
+        } catch (final IOException e) {
+            // keep payloads which are not JSON as they are
+            return TextNode.valueOf(payload);
+        }
+    }
+
+    public static AlexaRecordingEndpointBuilder create(final AlexaEndpoint endpoint, final String file) {
+        return create(endpoint, Paths.get(file));
+    }
+
+    public static AlexaRecordingEndpointBuilder create(final AlexaEndpoint endpoint, final Path file) {
+        return new AlexaRecordingEndpointBuilder(endpoint, file);
+    }
+
+    public static class AlexaRecordingEndpointBuilder {
+        AlexaEndpoint endpoint;
+        Path file;
+
+        AlexaRecordingEndpointBuilder(final AlexaEndpoint endpoint, final Path file) {
+            this.endpoint = endpoint;
+            this.file = file;
+        }
+
+        public AlexaRecordingEndpoint build() {
+            Validate.notNull(endpoint, "Endpoint to record must not be null.");
+            Validate.notNull(file, "File to record to must not be null.");
+
+            try {
+                return new AlexaRecordingEndpoint(this);
+            } catch (final IOException e) {
+                final String msg = String.format("Could not open %s for recording. %s", file, e.getMessage());
+                log.error(String.format("->[ERROR] %s", msg));
+                throw new RuntimeException(msg, e);
+            }
+        }
+    }
+}
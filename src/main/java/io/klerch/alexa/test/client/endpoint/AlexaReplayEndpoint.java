@@ -0,0 +1,170 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the responses recorded by an AlexaRecordingEndpoint without calling the skill. A request is matched
+ * against the recorded requests after removing the fields which change with every run, like the requestId,
+ * timestamp and sessionId. If the same request was recorded more than once, its responses are served in
+ * the order they were recorded and start over once all of them were served.
+ */
+public class AlexaReplayEndpoint implements AlexaEndpoint {
+    private final static Logger log = Logger.getLogger(AlexaReplayEndpoint.class);
+    /**
+     * Fields ignored when matching requests: requestId, timestamp, sessionId and the skill and user ids
+     * the client generates if none are configured.
+     */
+    public final static List<String> DEFAULT_IGNORED_FIELDS = AlexaRequestNormalizer.DEFAULT_IGNORED_FIELDS;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path file;
+    private final boolean replayLatency;
+    private final AlexaRequestNormalizer normalizer;
+    private final Map<String, Recordings> recordings = new HashMap<>();
+
+    private static class Recording {
+        private final byte[] responsePayload;
+        private final long latencyMicros;
+
+        private Recording(final byte[] responsePayload, final long latencyMicros) {
+            this.responsePayload = responsePayload;
+            this.latencyMicros = latencyMicros;
+        }
+    }
+
+    private static class Recordings {
+        private final List<Recording> recordings = new ArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Recording next() {
+            return recordings.get(Math.floorMod(next.getAndIncrement(), recordings.size()));
+        }
+    }
+
+    AlexaReplayEndpoint(final AlexaReplayEndpointBuilder builder) throws IOException {
+        this.file = builder.file;
+        this.replayLatency = builder.replayLatency;
+        this.normalizer = new AlexaRequestNormalizer(mapper, builder.ignoredFields);
+
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (StringUtils.isNotBlank(line)) {
+                    final JsonNode recording = mapper.readTree(line);
+                    final JsonNode response = recording.path(AlexaRecordingEndpoint.RESPONSE_FIELD);
+                    final byte[] responsePayload = response.isTextual() ? response.textValue().getBytes(StandardCharsets.UTF_8) :
+                            response.isObject() ? mapper.writeValueAsBytes(response) : null;
+                    recordings.computeIfAbsent(normalizer.normalize(recording.path(AlexaRecordingEndpoint.REQUEST_FIELD)), key -> new Recordings())
+                            .recordings.add(new Recording(responsePayload, recording.path(AlexaRecordingEndpoint.LATENCY_FIELD).asLong()));
+                }
+            }
+        }
+        log.info(String.format("[INFO] Loaded %s distinct recorded requests from %s.", recordings.size(), file));
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    public boolean isReplayLatency() {
+        return this.replayLatency;
+    }
+
+    public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+        final Recording recording = Optional.ofNullable(recordings.get(normalizer.normalize(request, payload))).map(Recordings::next).orElseThrow(() -> {
+            final String msg = String.format("No recorded response in %s for %s.", file, request.getClass().getSimpleName());
+            log.error(String.format("->[ERROR] %s", msg));
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("->[ERROR] with request payload '%s'.", payload));
+            }
+            return new RuntimeException(msg);
+        });
+
+        if (replayLatency && recording.latencyMicros > 0) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(recording.latencyMicros);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return request.expectsResponse() && recording.responsePayload != null ?
+                Optional.of(new AlexaResponse(request, payload, recording.responsePayload)) : Optional.empty();
+    }
+
+    static AlexaReplayEndpointBuilder create(final HashMap<Object, Object> endpointConfiguration) {
+        Validate.isTrue(endpointConfiguration.containsKey("file"), "file-attribute is missing in your Endpoint configuration for Replay.");
+
+        final AlexaReplayEndpointBuilder builder = create(endpointConfiguration.get("file").toString())
+                .withReplayLatency(Boolean.parseBoolean(String.valueOf(endpointConfiguration.get("replayLatency"))));
+        Optional.ofNullable(endpointConfiguration.get("ignore")).filter(o -> o instanceof List).map(o -> (List<?>)o)
+                .ifPresent(fields -> fields.forEach(field -> builder.withIgnoredField(field.toString())));
+        return builder;
+    }
+
+    public static AlexaReplayEndpointBuilder create(final String file) {
+        return create(Paths.get(file));
+    }
+
+    public static AlexaReplayEndpointBuilder create(final Path file) {
+        return new AlexaReplayEndpointBuilder(file);
+    }
+
+    public static class AlexaReplayEndpointBuilder {
+        Path file;
+        boolean replayLatency;
+        Set<String> ignoredFields = new LinkedHashSet<>(DEFAULT_IGNORED_FIELDS);
+
+        AlexaReplayEndpointBuilder(final Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Delays each response by the latency recorded for it to reproduce the timing of the skill.
+         * @param replayLatency true to wait for the recorded latency
+         * @return builder
+         */
+        public AlexaReplayEndpointBuilder withReplayLatency(final boolean replayLatency) {
+            this.replayLatency = replayLatency;
+            return this;
+        }
+
+        /**
+         * Ignores another field when matching requests in addition to the DEFAULT_IGNORED_FIELDS.
+         * @param field path of the field in the request envelope, like request.locale
+         * @return builder
+         */
+        public AlexaReplayEndpointBuilder withIgnoredField(final String field) {
+            Validate.notBlank(field, "Ignored field must not be empty.");
+            this.ignoredFields.add(field);
+            return this;
+        }
+
+        public AlexaReplayEndpoint build() {
+            Validate.notNull(file, "File with recordings must not be null.");
+            Validate.isTrue(Files.isRegularFile(file), "File with recordings %s does not exist.", file);
+
+            try {
+                return new AlexaReplayEndpoint(this);
+            } catch (final IOException e) {
+                final String msg = String.format("Could not read recordings from %s. %s", file, e.getMessage());
+                log.error(String.format("->[ERROR] %s", msg));
+                throw new RuntimeException(msg, e);
+            }
+        }
+    }
+}
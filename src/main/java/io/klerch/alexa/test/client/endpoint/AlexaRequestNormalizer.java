@@ -0,0 +1,100 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.request.AlexaUtteranceRequest;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Turns a request envelope into a canonical string for matching identical requests. Fields which change
+ * with every request or run are removed and the fields of all objects are sorted by name. Utterances are
+ * sent as plain text rather than an envelope, so they are matched by their text and locale.
+ */
+class AlexaRequestNormalizer {
+    private final static Logger log = Logger.getLogger(AlexaRequestNormalizer.class);
+    final static String UTTERANCE_FIELD = "utterance";
+    final static String LOCALE_FIELD = "locale";
+    /**
+     * Besides the values which are new for every request or session these are the ids the client
+     * generates if no skillId or user id is configured.
+     */
+    final static List<String> DEFAULT_IGNORED_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "request.requestId",
+            "request.timestamp",
+            "session.sessionId",
+            "session.application.applicationId",
+            "session.user.userId",
+            "context.System.application.applicationId",
+            "context.System.user.userId"));
+    private final ObjectMapper mapper;
+    private final List<String[]> ignoredFields = new ArrayList<>();
+
+    AlexaRequestNormalizer(final ObjectMapper mapper, final Collection<String> ignoredFields) {
+        this.mapper = mapper;
+        ignoredFields.forEach(field -> this.ignoredFields.add(StringUtils.split(field, '.')));
+    }
+
+    String normalize(final AlexaRequest request, final String payload) {
+        return normalize(read(request, payload));
+    }
+
+    /**
+     * Reads the payload of a request. The text of an utterance is given as an object with the utterance and
+     * the locale of the client.
+     * @param request the request
+     * @param payload the payload sent to the endpoint
+     * @return the payload as JSON
+     */
+    JsonNode read(final AlexaRequest request, final String payload) {
+        if (request instanceof AlexaUtteranceRequest) {
+            final ObjectNode utterance = mapper.createObjectNode();
+            utterance.put(UTTERANCE_FIELD, payload);
+            utterance.put(LOCALE_FIELD, request.getSession().getClient().getLocale().toLanguageTag());
+            return utterance;
+        }
+        try {
+            return mapper.readTree(payload);
+        } catch (final IOException e) {
+            final String msg = String.format("Invalid request payload. %s", e.getMessage());
+            log.error(String.format("->[ERROR] %s", msg));
+            throw new RuntimeException(msg, e);
+        }
+    }
+
+    String normalize(final JsonNode request) {
+        final JsonNode normalized = sorted(request);
+        ignoredFields.forEach(path -> {
+            JsonNode parent = normalized;
+            for (int i = 0; i < path.length - 1 && parent != null; i++) {
+                parent = parent.get(path[i]);
+            }
+            if (parent instanceof ObjectNode) {
+                ((ObjectNode)parent).remove(path[path.length - 1]);
+            }
+        });
+        return normalized.toString();
+    }
+
+    private JsonNode sorted(final JsonNode node) {
+        if (node.isObject()) {
+            final ObjectNode sorted = mapper.createObjectNode();
+            final SortedSet<String> fieldNames = new TreeSet<>();
+            node.fieldNames().forEachRemaining(fieldNames::add);
+            fieldNames.forEach(fieldName -> sorted.set(fieldName, sorted(node.get(fieldName))));
+            return sorted;
+        }
+        if (node.isArray()) {
+            final ArrayNode sorted = mapper.createArrayNode();
+            node.forEach(element -> sorted.add(sorted(element)));
+            return sorted;
+        }
+        return node;
+    }
+}
@@ -1,6 +1,7 @@
 package io.klerch.alexa.test.client.endpoint;
 
 import com.amazonaws.services.lambda.runtime.*;
+import io.klerch.alexa.test.client.AlexaTrace;
 import io.klerch.alexa.test.request.AlexaRequest;
 import io.klerch.alexa.test.response.AlexaResponse;
 import org.apache.commons.lang3.Validate;
@@ -10,17 +11,76 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Optional;
 
 public class AlexaRequestStreamHandlerEndpoint implements AlexaEndpoint {
     private final static Logger log = Logger.getLogger(AlexaRequestStreamHandlerEndpoint.class);
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    // buffers grown beyond this size are not kept for the next call
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
     private final RequestStreamHandler requestStreamHandler;
     private final Context context;
+    private final boolean fastMode;
+
+    /**
+     * Buffers each thread reuses for the request and response payloads in fast mode.
+     */
+    private static class Buffers {
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private ByteBuffer input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private ReusableOutputStream output = new ReusableOutputStream();
+
+        private ByteBuffer encode(final String payload) {
+            final int maxBytes = (int)Math.ceil(payload.length() * (double)encoder.maxBytesPerChar());
+            if (input.capacity() < maxBytes) {
+                input = ByteBuffer.allocate(maxBytes);
+            }
+            input.clear();
+            encoder.reset();
+            encoder.encode(CharBuffer.wrap(payload), input, true);
+            encoder.flush(input);
+            return input;
+        }
+
+        private ReusableOutputStream output() {
+            output.reset();
+            return output;
+        }
+
+        private void release() {
+            if (input.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            }
+            if (output.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                output = new ReusableOutputStream();
+            }
+        }
+    }
+
+    private static class ReusableOutputStream extends ByteArrayOutputStream {
+        private ReusableOutputStream() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+    }
 
     AlexaRequestStreamHandlerEndpoint(final AlexaRequestStreamHandlerEndpointBuilder builder) {
         this.requestStreamHandler = builder.requestStreamHandler;
         this.context = builder.context;
+        this.fastMode = builder.fastMode;
     }
 
     public RequestStreamHandler getRequestStreamHandler() {
@@ -31,27 +91,57 @@ public class AlexaRequestStreamHandlerEndpoint implements AlexaEndpoint {
         return this.context;
     }
 
+    public boolean isFastMode() {
+        return this.fastMode;
+    }
+
     public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+        if (fastMode) {
+            return fireFast(request, payload);
+        }
         final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        final InputStream inputStream = new ByteArrayInputStream(payload.getBytes());
+        final InputStream inputStream = new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8));
+        invoke(request, inputStream, outputStream, payload);
+        return request.expectsResponse() ?
+                Optional.of(new AlexaResponse(request, payload, outputStream.toByteArray())) : Optional.empty();
+    }
+
+    private Optional<AlexaResponse> fireFast(final AlexaRequest request, final String payload) {
+        final Buffers threadBuffers = buffers.get();
         try {
-            log.info(String.format("->[INFO] Call request handler '%s'.", requestStreamHandler.getClass().getCanonicalName()));
-            log.debug(String.format("->[INFO] with request payload '%s'.", payload));
+            final ByteBuffer input = threadBuffers.encode(payload);
+            final ReusableOutputStream outputStream = threadBuffers.output();
+            invoke(request, new ByteArrayInputStream(input.array(), 0, input.position()), outputStream, payload);
+            // the buffer is reused by the next call, so the response gets a copy of exactly the bytes written
+            return request.expectsResponse() ?
+                    Optional.of(new AlexaResponse(request, payload, outputStream.toByteArray())) : Optional.empty();
+        } finally {
+            threadBuffers.release();
+        }
+    }
+
+    private void invoke(final AlexaRequest request, final InputStream inputStream, final OutputStream outputStream, final String payload) {
+        try {
+            if (AlexaTrace.isEnabled(log, request.getSession())) {
+                log.info(String.format("->[INFO] Call request handler '%s'.", requestStreamHandler.getClass().getCanonicalName()));
+            }
+            if (AlexaTrace.isDebugEnabled(log, request.getSession())) {
+                log.debug(String.format("->[INFO] with request payload '%s'.", payload));
+            }
             requestStreamHandler.handleRequest(inputStream, outputStream, context);
         } catch (final IOException e) {
             final String msg = String.format("Error on invoking request stream handler. %s", e.getMessage());
             log.error(String.format("->[ERROR] %s", msg));
             throw new RuntimeException(msg, e);
         }
-        return request.expectsResponse() ?
-                Optional.of(new AlexaResponse(request, payload, new String(outputStream.toByteArray()))) : Optional.empty();
     }
 
     static AlexaRequestStreamHandlerEndpointBuilder create(final HashMap<Object, Object> endpointConfiguration) throws ClassNotFoundException, IllegalAccessException, InstantiationException {
         Validate.notEmpty(endpointConfiguration, "Endpoint configuration must not be empty. At least the class-attribute is necessary for the RequestStreamHandler.");
         Validate.isTrue(endpointConfiguration.containsKey("class"), "class-attribute is missing in your Endpoint configuration for the RequestStreamHandler.");
 
-        return create(Class.forName(endpointConfiguration.get("class").toString()).asSubclass(RequestStreamHandler.class));
+        return create(Class.forName(endpointConfiguration.get("class").toString()).asSubclass(RequestStreamHandler.class))
+                .withFastMode(Boolean.parseBoolean(String.valueOf(endpointConfiguration.get("fastMode"))));
     }
 
     public static <T extends RequestStreamHandler> AlexaRequestStreamHandlerEndpointBuilder create(final Class<T> clazz) throws IllegalAccessException, InstantiationException {
@@ -65,6 +155,7 @@ public class AlexaRequestStreamHandlerEndpoint implements AlexaEndpoint {
     public static class AlexaRequestStreamHandlerEndpointBuilder {
         RequestStreamHandler requestStreamHandler;
         Context context;
+        boolean fastMode;
 
         AlexaRequestStreamHandlerEndpointBuilder(final RequestStreamHandler requestStreamHandler) {
             this.requestStreamHandler = requestStreamHandler;
@@ -75,6 +166,17 @@ public class AlexaRequestStreamHandlerEndpoint implements AlexaEndpoint {
             return this;
         }
 
+        /**
+         * In fast mode the endpoint keeps its own overhead per call to a minimum so that mostly the
+         * handler's cost is measured. Each thread reuses its buffers for the request and response payloads.
+         * @param fastMode true to turn on fast mode
+         * @return builder
+         */
+        public AlexaRequestStreamHandlerEndpointBuilder withFastMode(final boolean fastMode) {
+            this.fastMode = fastMode;
+            return this;
+        }
+
         public AlexaRequestStreamHandlerEndpoint build() {
             Validate.notNull(requestStreamHandler, "Request stream handler must not be null.");
 
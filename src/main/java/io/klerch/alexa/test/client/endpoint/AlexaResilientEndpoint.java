@@ -0,0 +1,449 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import com.amazonaws.AmazonServiceException;
+import io.klerch.alexa.test.client.AlexaMetrics;
+import io.klerch.alexa.test.client.AlexaTrace;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.log4j.Logger;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets calls to another endpoint survive transient failures. A call which failed as the target was unreachable,
+ * throttled or unavailable is made again after a backoff doubling with each retry, of which a random share is
+ * waited (full jitter) so sessions failing together do not retry together. Each call adds a fraction of a retry
+ * to a budget, so a target in trouble gets no more than that fraction of extra calls once the reserve is used up.
+ * After a number of consecutive failures the circuit breaker opens and calls fail fast without reaching the
+ * target. Once the open duration passed a single call probes the target and closes the circuit if it succeeds.
+ * <p>
+ * By default only calls the target did not process are retried, i.e. the connection was refused, the call was
+ * throttled (429) or the target was unavailable (503). Calls which might have reached the skill, e.g. as they
+ * timed out or failed with another server error, are retried only if the skill is idempotent. Errors of the
+ * skill itself are never retried. Time spent on failed attempts and backoff is kept by the request, so it is
+ * not counted as latency of the skill.
+ */
+public class AlexaResilientEndpoint implements AlexaEndpoint {
+    private final static Logger log = Logger.getLogger(AlexaResilientEndpoint.class);
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_BASE_DELAY_MILLIS = 100L;
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 5000L;
+    private static final double DEFAULT_RETRY_RATIO = 0.2;
+    private static final int DEFAULT_RETRY_RESERVE = 10;
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_OPEN_MILLIS = 10000L;
+    private static final int MAX_CAUSES = 16;
+
+    private final AlexaEndpoint endpoint;
+    private final String name;
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final boolean idempotent;
+    private final double retryRatio;
+    private final int retryReserve;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+    private final AtomicLong circuitOpened = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    // guarded by this
+    private double retryTokens;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+
+    /**
+     * How a call failed.
+     */
+    enum Failure {
+        // the target did not process the call, so it is safe to make it again
+        REJECTED,
+        // the call might have reached the skill
+        UNKNOWN,
+        // the call failed for a reason a retry does not change
+        PERMANENT
+    }
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static class RetryHolder {
+        private static final AtomicInteger threadCount = new AtomicInteger();
+        // waits for backoffs to pass without occupying a thread
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // makes the retries, as endpoints without an asynchronous client block while calling
+        private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "alexa-retry-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    AlexaResilientEndpoint(final AlexaResilientEndpointBuilder builder) {
+        this.endpoint = builder.endpoint;
+        this.name = StringUtils.defaultIfEmpty(builder.endpoint.getClass().getSimpleName(), builder.endpoint.getClass().getName());
+        this.maxRetries = builder.maxRetries;
+        this.baseDelayMillis = builder.baseDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.idempotent = builder.idempotent;
+        this.retryRatio = builder.retryRatio;
+        this.retryReserve = builder.retryReserve;
+        this.failureThreshold = builder.failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(builder.openMillis);
+        this.retryTokens = builder.retryReserve;
+    }
+
+    /**
+     * The endpoint whose calls are retried.
+     * @return endpoint
+     */
+    public AlexaEndpoint getEndpoint() {
+        return this.endpoint;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Failed calls which were not retried as the retry budget was used up.
+     * @return number of calls
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    public long getCircuitOpened() {
+        return circuitOpened.get();
+    }
+
+    /**
+     * Calls which failed fast as the circuit was open.
+     * @return number of calls
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    public String getReport() {
+        return String.format("Resilience: %1$s calls, %2$s retries, %3$s failures not retried as the budget was used up, circuit opened %4$s times and failed %5$s calls fast.",
+                getCalls(), getRetries(), getBudgetExhausted(), getCircuitOpened(), getRejected());
+    }
+
+    public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+        try {
+            return fire(request, () -> CompletableFuture.completedFuture(endpoint.fire(request, payload))).join();
+        } catch (final CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException)e.getCause() : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+        return fire(request, () -> endpoint.fireAsync(request, payload));
+    }
+
+    private CompletableFuture<Optional<AlexaResponse>> fire(final AlexaRequest request, final Supplier<CompletableFuture<Optional<AlexaResponse>>> call) {
+        calls.incrementAndGet();
+        synchronized (this) {
+            retryTokens = Math.min(retryReserve, retryTokens + retryRatio);
+        }
+        final CompletableFuture<Optional<AlexaResponse>> future = new CompletableFuture<>();
+        attempt(request, call, 0, System.nanoTime(), future);
+        return future;
+    }
+
+    private void attempt(final AlexaRequest request, final Supplier<CompletableFuture<Optional<AlexaResponse>>> call, final int retry,
+                         final long firstNanos, final CompletableFuture<Optional<AlexaResponse>> future) {
+        if (!isCallPermitted()) {
+            rejected.incrementAndGet();
+            AlexaMetrics.getInstance().increment(AlexaMetrics.CIRCUIT_REJECTED);
+            future.completeExceptionally(new RuntimeException(String.format("[ERROR] Circuit breaker of %1$s is open after %2$s consecutive failures. Call failed fast.",
+                    name, failureThreshold)));
+            return;
+        }
+        if (retry > 0) {
+            request.onRetry(System.nanoTime() - firstNanos);
+        }
+        CompletableFuture<Optional<AlexaResponse>> response;
+        try {
+            response = call.get();
+        } catch (final RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        response.whenComplete((r, e) -> {
+            if (e == null) {
+                onOutcome(false);
+                future.complete(r);
+                return;
+            }
+            final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            final Failure failure = classify(cause);
+            // the target answered if the failure is permanent, so it does not count against the circuit
+            onOutcome(failure != Failure.PERMANENT);
+            if (retry >= maxRetries || failure == Failure.PERMANENT || (failure == Failure.UNKNOWN && !idempotent)) {
+                future.completeExceptionally(cause);
+                return;
+            }
+            if (!acquireRetryToken()) {
+                budgetExhausted.incrementAndGet();
+                AlexaMetrics.getInstance().increment(AlexaMetrics.RETRIES_BUDGET_EXHAUSTED);
+                future.completeExceptionally(cause);
+                return;
+            }
+            retries.incrementAndGet();
+            AlexaMetrics.getInstance().increment(AlexaMetrics.RETRIES);
+            final long delayMillis = getBackoffMillis(retry);
+            if (AlexaTrace.isEnabled(log, request.getSession())) {
+                log.info(String.format("->[INFO] Call to %1$s failed. %2$s Retry %3$s of %4$s in %5$s ms.",
+                        name, cause.getMessage(), retry + 1, maxRetries, delayMillis));
+            }
+            RetryHolder.SCHEDULER.schedule(() -> RetryHolder.WORKERS.execute(() -> attempt(request, call, retry + 1, firstNanos, future)),
+                    delayMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private long getBackoffMillis(final int retry) {
+        final long ceiling = (long)Math.min(maxDelayMillis, baseDelayMillis * Math.pow(2, retry));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private synchronized boolean acquireRetryToken() {
+        if (retryTokens < 1.0) {
+            return false;
+        }
+        retryTokens -= 1.0;
+        return true;
+    }
+
+    private synchronized boolean isCallPermitted() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            // let a single probe through
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    private void onOutcome(final boolean failed) {
+        final State previous;
+        final State current;
+        synchronized (this) {
+            previous = state;
+            if (!failed) {
+                consecutiveFailures = 0;
+                state = State.CLOSED;
+            } else if (++consecutiveFailures >= failureThreshold && failureThreshold > 0 && state != State.OPEN) {
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+            }
+            current = state;
+        }
+        if (previous != State.OPEN && current == State.OPEN) {
+            circuitOpened.incrementAndGet();
+            AlexaMetrics.getInstance().increment(AlexaMetrics.CIRCUIT_OPENED);
+            log.warn(String.format("[WARN] Circuit breaker of %1$s opened after %2$s consecutive failures. Calls fail fast for %3$s ms.",
+                    name, failureThreshold, TimeUnit.NANOSECONDS.toMillis(openNanos)));
+        } else if (previous != State.CLOSED && current == State.CLOSED) {
+            log.info(String.format("[INFO] Circuit breaker of %s closed as the call succeeded.", name));
+        }
+    }
+
+    /**
+     * Tells how a call failed from the exception it failed with or one of its causes.
+     * @param e the exception
+     * @return failure
+     */
+    static Failure classify(final Throwable e) {
+        Throwable t = e;
+        for (int i = 0; t != null && i < MAX_CAUSES; i++, t = t.getCause()) {
+            if (t instanceof AlexaEndpointException) {
+                return classify(((AlexaEndpointException)t).getStatusCode());
+            }
+            if (t instanceof AmazonServiceException) {
+                return classify(((AmazonServiceException)t).getStatusCode());
+            }
+            if (t instanceof ConnectException || t instanceof ConnectTimeoutException || t instanceof UnknownHostException) {
+                return Failure.REJECTED;
+            }
+            if (t instanceof SocketException || t instanceof InterruptedIOException || t instanceof NoHttpResponseException) {
+                return Failure.UNKNOWN;
+            }
+        }
+        return Failure.PERMANENT;
+    }
+
+    private static Failure classify(final int statusCode) {
+        if (statusCode == 429 || statusCode == 503) {
+            return Failure.REJECTED;
+        }
+        return statusCode >= 500 ? Failure.UNKNOWN : Failure.PERMANENT;
+    }
+
+    static AlexaResilientEndpointBuilder create(final AlexaEndpoint endpoint, final HashMap<Object, Object> resilienceConfiguration) {
+        final AlexaResilientEndpointBuilder builder = create(endpoint);
+        getString(resilienceConfiguration, "maxRetries").map(Integer::valueOf).ifPresent(builder::withMaxRetries);
+        getString(resilienceConfiguration, "baseDelay").map(Long::valueOf).ifPresent(builder::withBaseDelay);
+        getString(resilienceConfiguration, "maxDelay").map(Long::valueOf).ifPresent(builder::withMaxDelay);
+        getString(resilienceConfiguration, "idempotent").map(Boolean::valueOf).ifPresent(builder::withIdempotent);
+        getString(resilienceConfiguration, "retryRatio").map(Double::valueOf).ifPresent(builder::withRetryRatio);
+        getString(resilienceConfiguration, "retryReserve").map(Integer::valueOf).ifPresent(builder::withRetryReserve);
+        getString(resilienceConfiguration, "failureThreshold").map(Integer::valueOf).ifPresent(builder::withFailureThreshold);
+        getString(resilienceConfiguration, "openDuration").map(Long::valueOf).ifPresent(builder::withOpenDuration);
+        return builder;
+    }
+
+    private static Optional<String> getString(final HashMap<Object, Object> yNode, final String key) {
+        return Optional.ofNullable(yNode.get(key)).map(Object::toString);
+    }
+
+    public static AlexaResilientEndpointBuilder create(final AlexaEndpoint endpoint) {
+        return new AlexaResilientEndpointBuilder(endpoint);
+    }
+
+    public static class AlexaResilientEndpointBuilder {
+        AlexaEndpoint endpoint;
+        int maxRetries = DEFAULT_MAX_RETRIES;
+        long baseDelayMillis = DEFAULT_BASE_DELAY_MILLIS;
+        long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+        boolean idempotent;
+        double retryRatio = DEFAULT_RETRY_RATIO;
+        int retryReserve = DEFAULT_RETRY_RESERVE;
+        int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+        long openMillis = DEFAULT_OPEN_MILLIS;
+
+        AlexaResilientEndpointBuilder(final AlexaEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Number of times a failed call is made again. Defaults to 3.
+         * @param maxRetries maximum retries
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withMaxRetries(final int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Backoff of the first retry, doubled with each further one. Defaults to 100 ms.
+         * @param baseDelayMillis milliseconds
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withBaseDelay(final long baseDelayMillis) {
+            this.baseDelayMillis = baseDelayMillis;
+            return this;
+        }
+
+        /**
+         * Backoff the doubling stops at. Defaults to 5000 ms.
+         * @param maxDelayMillis milliseconds
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withMaxDelay(final long maxDelayMillis) {
+            this.maxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        /**
+         * Set to true if the skill handles the same request twice without side effects, so calls which might
+         * have reached the skill before they failed are retried as well.
+         * @param idempotent true if the skill is idempotent
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withIdempotent(final boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+
+        /**
+         * Retries each call adds to the retry budget. Defaults to 0.2, so retries add at most a fifth to the calls.
+         * @param retryRatio retries per call
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withRetryRatio(final double retryRatio) {
+            this.retryRatio = retryRatio;
+            return this;
+        }
+
+        /**
+         * Retries the budget holds at most and starts with. Defaults to 10, 0 leaves no budget for any retry.
+         * @param retryReserve number of retries
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withRetryReserve(final int retryReserve) {
+            this.retryReserve = retryReserve;
+            return this;
+        }
+
+        /**
+         * Consecutive failures which open the circuit. Defaults to 5, 0 turns off the circuit breaker.
+         * @param failureThreshold number of failures
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withFailureThreshold(final int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Time calls fail fast once the circuit opened before a call probes the target. Defaults to 10000 ms.
+         * @param openMillis milliseconds
+         * @return builder
+         */
+        public AlexaResilientEndpointBuilder withOpenDuration(final long openMillis) {
+            this.openMillis = openMillis;
+            return this;
+        }
+
+        public AlexaResilientEndpoint build() {
+            Validate.notNull(endpoint, "Endpoint to retry must not be null.");
+            Validate.isTrue(maxRetries >= 0, "Maximum retries must not be negative.");
+            Validate.isTrue(baseDelayMillis >= 0, "Base delay of retries must not be negative.");
+            Validate.isTrue(maxDelayMillis >= baseDelayMillis, "Maximum delay of retries must not be less than the base delay.");
+            Validate.isTrue(retryRatio >= 0, "Retry ratio must not be negative.");
+            Validate.isTrue(retryReserve >= 0, "Retry reserve must not be negative.");
+            Validate.isTrue(failureThreshold >= 0, "Failure threshold must not be negative.");
+            Validate.isTrue(openMillis > 0, "Open duration of the circuit breaker must be greater than zero.");
+
+            return new AlexaResilientEndpoint(this);
+        }
+    }
+}
@@ -3,35 +3,41 @@ package io.klerch.alexa.test.client.endpoint;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.klerch.alexa.test.client.AlexaTrace;
 import io.klerch.alexa.test.request.AlexaRequest;
 import io.klerch.alexa.test.request.AlexaUtteranceRequest;
 import io.klerch.alexa.test.response.AlexaResponse;
 import org.apache.commons.lang3.Validate;
-import org.apache.http.HttpResponse;
 
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class AlexaSimulationApiEndpoint extends AlexaApiEndpoint {
     @JsonIgnore
     private static final String DEFAULT_LOCALE = Locale.US.toLanguageTag();
-    @JsonProperty
-    Input input = new Input();
-    @JsonProperty
-    final Device device = new Device();
+    @JsonIgnore
+    final String locale;
 
     AlexaSimulationApiEndpoint(final AlexaSimulationApiEndpointBuilder builder) {
         super(builder);
-        device.locale = builder.locale;
+        this.locale = builder.locale;
+    }
+
+    private static class SimulationRequest {
+        @JsonProperty
+        private final Input input = new Input();
+        @JsonProperty
+        private final Device device = new Device();
     }
 
-    private class Device {
+    private static class Device {
         @JsonProperty
         private String locale;
     }
 
-    private class Input {
+    private static class Input {
         @JsonProperty
         private String content;
     }
@@ -49,22 +55,25 @@ public class AlexaSimulationApiEndpoint extends AlexaApiEndpoint {
     }
 
     @Override
-    public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+    public CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
         if (!(request instanceof AlexaUtteranceRequest)) {
-            log.info("Skip " + request.getClass().getName() + " as it is not supported by Simulation-Api endpoint.");
-            return Optional.empty();
+            if (AlexaTrace.isEnabled(log, request.getSession())) {
+                log.info("Skip " + request.getClass().getName() + " as it is not supported by Simulation-Api endpoint.");
+            }
+            return CompletableFuture.completedFuture(Optional.empty());
         } else {
-            return super.fire(request, payload);
+            return super.fireAsync(request, payload);
         }
     }
 
     @Override
-    HttpResponse fire(final String utterance) {
+    String getRequestPayload(final String utterance) {
+        // a new request object per call keeps this endpoint free of shared mutable state
+        final SimulationRequest simulationRequest = new SimulationRequest();
+        simulationRequest.input.content = utterance;
+        simulationRequest.device.locale = locale;
         try {
-            input.content = utterance;
-            // inject payload
-            final String requestPayload = om.writeValueAsString(this);
-            return super.fire(requestPayload);
+            return om.writeValueAsString(simulationRequest);
         } catch (final JsonProcessingException e) {
             throw new RuntimeException("Could not build request for Simulation API. ", e);
         }
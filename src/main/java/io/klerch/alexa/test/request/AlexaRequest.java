@@ -10,6 +10,9 @@ public abstract class AlexaRequest {
     private final ObjectMapper mapper;
     final AlexaSession session;
     SpeechletRequest speechletRequest;
+    // written by the one attempt running at a time
+    private volatile int retries;
+    private volatile long retryNanos;
 
     AlexaRequest(final AlexaSession session) {
         this.session = session;
@@ -24,6 +27,31 @@ public abstract class AlexaRequest {
         return this.session;
     }
 
+    /**
+     * Number of times the request was fired again after a transient failure.
+     * @return retries
+     */
+    public int getRetries() {
+        return this.retries;
+    }
+
+    /**
+     * Time spent on failed attempts and waiting for retries. It is not part of the latency recorded for the request.
+     * @return nanoseconds
+     */
+    public long getRetryNanos() {
+        return this.retryNanos;
+    }
+
+    /**
+     * Called by endpoints right before the request is fired again.
+     * @param retryNanos time since the first attempt was made
+     */
+    public void onRetry(final long retryNanos) {
+        this.retries++;
+        this.retryNanos = retryNanos;
+    }
+
     public abstract SpeechletRequest getSpeechletRequest();
 
     public abstract boolean expectsResponse();
@@ -0,0 +1,48 @@
+package io.klerch.alexa.test.response;
+
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An assertion or condition in simplified JSONPath, compiled once so it can be validated against
+ * many responses. Use it in place of the expression string wherever the same expression is
+ * evaluated over and over.
+ */
+public class AlexaAssertion {
+    final String expression;
+    final JsonPath jsonPath;
+
+    AlexaAssertion(final String expression, final JsonPath jsonPath) {
+        this.expression = expression;
+        this.jsonPath = jsonPath;
+    }
+
+    /**
+     * Compiles an assertion e.g. response.shouldEndSession == false
+     * @param expression simplified JSONPath expression
+     * @return the compiled assertion
+     */
+    public static AlexaAssertion create(final String expression) {
+        Validate.notBlank(expression, "Assertion must not be blank.");
+        try {
+            return new AlexaAssertion(expression, JsonPath.compile(toJsonPath(expression)));
+        } catch (final InvalidPathException e) {
+            throw new RuntimeException(String.format("[ERROR] Invalid assertion '%1$s'. %2$s", expression, e.getMessage()), e);
+        }
+    }
+
+    static String toJsonPath(final String expression) {
+        // turn simplified into a filter applied to the response wrapped in an array
+        return "$.response[" + (expression.startsWith("?(@.") ? expression : "?(@." + expression + ")") + "]";
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
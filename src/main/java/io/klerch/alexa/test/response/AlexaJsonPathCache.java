@@ -0,0 +1,48 @@
+package io.klerch.alexa.test.response;
+
+import com.jayway.jsonpath.JsonPath;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of compiled JSONPath expressions. Scripts evaluate the same few expressions
+ * over and over, so each of them is compiled once and shared by all responses and threads.
+ */
+class AlexaJsonPathCache {
+    private final int maxSize;
+    private final Function<String, String> toPath;
+    private final ConcurrentMap<String, JsonPath> paths = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxSize maximum number of compiled expressions kept in the cache
+     * @param toPath turns an expression as given by the user into a valid JSONPath
+     */
+    AlexaJsonPathCache(final int maxSize, final Function<String, String> toPath) {
+        this.maxSize = maxSize;
+        this.toPath = toPath;
+    }
+
+    JsonPath get(final String expression) {
+        final JsonPath cached = paths.get(expression);
+        if (cached != null) {
+            return cached;
+        }
+        final JsonPath compiled = JsonPath.compile(toPath.apply(expression));
+        if (paths.size() >= maxSize) {
+            // make room by dropping an arbitrary entry. scripts rarely exceed the limit so this is good enough
+            final Iterator<String> keys = paths.keySet().iterator();
+            if (keys.hasNext()) {
+                paths.remove(keys.next());
+            }
+        }
+        paths.putIfAbsent(expression, compiled);
+        return compiled;
+    }
+
+    int size() {
+        return paths.size();
+    }
+}
@@ -0,0 +1,46 @@
+package io.klerch.alexa.test.response;
+
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A reference to a value in a response (or its request) expressed in JSONPath e.g. $.sessionAttributes.key,
+ * compiled once so it can be resolved against many responses.
+ */
+public class AlexaReference {
+    final String expression;
+    final JsonPath jsonPath;
+
+    AlexaReference(final String expression, final JsonPath jsonPath) {
+        this.expression = expression;
+        this.jsonPath = jsonPath;
+    }
+
+    /**
+     * Compiles a reference e.g. $.request.intent.slots.number.value
+     * @param expression JSONPath expression
+     * @return the compiled reference
+     */
+    public static AlexaReference create(final String expression) {
+        Validate.notBlank(expression, "Reference must not be blank.");
+        try {
+            return new AlexaReference(expression, JsonPath.compile(toJsonPath(expression)));
+        } catch (final InvalidPathException e) {
+            throw new RuntimeException(String.format("[ERROR] Invalid reference '%1$s'. %2$s", expression, e.getMessage()), e);
+        }
+    }
+
+    static String toJsonPath(final String expression) {
+        return expression.startsWith("$") ? expression : "$" + expression;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
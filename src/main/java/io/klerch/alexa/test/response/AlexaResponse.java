@@ -4,16 +4,23 @@ import com.amazon.speech.json.SpeechletResponseEnvelope;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import io.klerch.alexa.test.client.AlexaClient;
+import io.klerch.alexa.test.client.AlexaMetrics;
+import io.klerch.alexa.test.client.AlexaReportEvent;
 import io.klerch.alexa.test.client.AlexaSession;
+import io.klerch.alexa.test.client.AlexaTrace;
 import io.klerch.alexa.test.request.AlexaRequest;
-import net.minidev.json.JSONArray;
 import org.apache.commons.lang3.Validate;
 import org.apache.log4j.Logger;
 
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -23,51 +30,172 @@ import java.util.function.Predicate;
  * of methods you can use to validate contents over assertions.
  */
 public class AlexaResponse {
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // JSONPath evaluates on documents of its default provider, so filters like contains and size work on arrays
     private static final Configuration config = Configuration.builder()
             .options(Option.ALWAYS_RETURN_LIST)
             .options(Option.DEFAULT_PATH_LEAF_TO_NULL)
             .options(Option.SUPPRESS_EXCEPTIONS)
             .build();
 
-    private static final ObjectMapper mapper = new ObjectMapper()
-            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final int MAX_CACHED_PATHS = 2048;
+    // plain JSONPath expressions as used with get
+    private static final AlexaJsonPathCache paths = new AlexaJsonPathCache(MAX_CACHED_PATHS, AlexaReference::toJsonPath);
+    // simplified filter expressions as used with is, applied to the response wrapped in an array
+    private static final AlexaJsonPathCache conditions = new AlexaJsonPathCache(MAX_CACHED_PATHS, AlexaAssertion::toJsonPath);
 
     private final static Logger log = Logger.getLogger(AlexaResponse.class);
-    final SpeechletResponseEnvelope envelope;
-    final String responsePayload;
+    final byte[] responsePayload;
     final String requestPayload;
     final AlexaRequest request;
+    // payloads are parsed once on first use into the documents JSONPath reads from. the envelope is only built if someone asks for it
+    private volatile Object responseDocument;
+    private volatile Object wrappedResponseDocument;
+    private volatile Object requestDocument;
+    private volatile SpeechletResponseEnvelope envelope;
 
     public AlexaResponse(final AlexaRequest request, final String requestPayload, final String responsePayload) {
+        this(request, requestPayload, responsePayload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public AlexaResponse(final AlexaRequest request, final String requestPayload, final byte[] responsePayload) {
         this.request = request;
         this.requestPayload = requestPayload;
         this.responsePayload = responsePayload;
-        try {
-            envelope = mapper.readValue(responsePayload, SpeechletResponseEnvelope.class);
-        } catch (final IOException e) {
-            throw new RuntimeException("Invalid response format from Lambda function.", e);
-        }
     }
 
     public SpeechletResponseEnvelope getResponseEnvelope() {
-        return this.envelope;
+        SpeechletResponseEnvelope responseEnvelope = envelope;
+        if (responseEnvelope == null) {
+            try {
+                envelope = responseEnvelope = mapper.convertValue(getResponseDocument(), SpeechletResponseEnvelope.class);
+            } catch (final IllegalArgumentException e) {
+                throw new RuntimeException("Invalid response format from Lambda function.", e);
+            }
+        }
+        return responseEnvelope;
+    }
+
+    /**
+     * The skill response as it was returned by the skill.
+     * @return response payload
+     */
+    public String getResponsePayload() {
+        return new String(responsePayload, StandardCharsets.UTF_8);
     }
 
     public AlexaRequest getRequest() {
         return this.request;
     }
 
-    public Optional<String> get(String jsonPath) {
-        if (!jsonPath.startsWith("$")) jsonPath = "$" + jsonPath;
-        List<String> result = JsonPath.using(config).parse(responsePayload).read(jsonPath);
+    /**
+     * Tells if the skill wants to end the session. The value is read without building the envelope.
+     * @return shouldEndSession of the response, empty if the skill did not return a response object
+     */
+    public Optional<Boolean> getShouldEndSession() {
+        final Object response = getProperty(getResponseDocument(), "response");
+        if (!(response instanceof Map)) {
+            return Optional.empty();
+        }
+        final Object shouldEndSession = getProperty(response, "shouldEndSession");
+        if (shouldEndSession instanceof Boolean) {
+            return Optional.of((Boolean)shouldEndSession);
+        }
+        // the session ends unless the skill says otherwise
+        return Optional.of(!"false".equals(String.valueOf(shouldEndSession)));
+    }
+
+    /**
+     * SSML or text of the output speech. The value is read without building the envelope.
+     * @return output speech of the response, empty if the skill did not return any
+     */
+    public Optional<String> getOutputSpeech() {
+        final Object speech = getProperty(getProperty(getResponseDocument(), "response"), "outputSpeech");
+        final Object ssml = getProperty(speech, "ssml");
+        final Object value = ssml != null ? ssml : getProperty(speech, "text");
+        return value instanceof String ? Optional.of((String)value) : Optional.empty();
+    }
+
+    /**
+     * Session attributes returned by the skill. The map is read without building the envelope.
+     * @return session attributes, null if the skill did not return any
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getSessionAttributes() {
+        final Object attributes = getProperty(getResponseDocument(), "sessionAttributes");
+        // copied so changes to the attributes don't affect assertions on this response
+        return attributes instanceof Map ? mapper.convertValue(attributes, Map.class) : null;
+    }
+
+    private static Object getProperty(final Object document, final String key) {
+        return document instanceof Map ? ((Map<?, ?>)document).get(key) : null;
+    }
+
+    public Optional<String> get(final String jsonPath) {
+        return get(paths.get(jsonPath));
+    }
+
+    /**
+     * Resolves a compiled reference against this response. If it cannot be found in the
+     * response it is resolved against the request.
+     * @param reference the compiled reference
+     * @return value of the first element found
+     */
+    public Optional<String> get(final AlexaReference reference) {
+        return get(reference.jsonPath);
+    }
+
+    private Optional<String> get(final JsonPath path) {
+        List<?> result = path.read(getResponseDocument(), config);
 
         if (result == null || result.isEmpty()) {
-            result = JsonPath.using(config).parse(requestPayload).read(jsonPath);
+            result = path.read(getRequestDocument(), config);
         }
 
         return Optional.ofNullable(result)
                 .filter(l -> !l.isEmpty())
-                .map(l -> l.get(0));
+                .map(l -> l.get(0))
+                .map(value -> value instanceof Map || value instanceof List ? config.jsonProvider().toJson(value) : value.toString());
+    }
+
+    private Object getResponseDocument() {
+        Object document = responseDocument;
+        if (document == null) {
+            try {
+                responseDocument = document = config.jsonProvider().parse(new ByteArrayInputStream(responsePayload), StandardCharsets.UTF_8.name());
+            } catch (final InvalidJsonException e) {
+                throw new RuntimeException("Invalid response format from Lambda function.", e);
+            }
+        }
+        return document;
+    }
+
+    private Object getWrappedResponseDocument() {
+        Object document = wrappedResponseDocument;
+        if (document == null) {
+            // filter expressions only apply to array elements, so wrap the response like { "response" : [ ... ] }
+            final JsonProvider provider = config.jsonProvider();
+            final Object array = provider.createArray();
+            provider.setArrayIndex(array, 0, getResponseDocument());
+            final Object wrapper = provider.createMap();
+            provider.setProperty(wrapper, "response", array);
+            wrappedResponseDocument = document = wrapper;
+        }
+        return document;
+    }
+
+    private Object getRequestDocument() {
+        Object document = requestDocument;
+        if (document == null) {
+            try {
+                requestDocument = document = config.jsonProvider().parse(requestPayload);
+            } catch (final InvalidJsonException e) {
+                throw new RuntimeException("Invalid request format. " + e.getMessage(), e);
+            }
+        }
+        return document;
     }
 
     /**
@@ -88,9 +216,11 @@ public class AlexaResponse {
      */
     public AlexaResponse assertExecutionTimeLessThan(final long millis) {
         final String assertionText = String.format("Execution is not longer than %s ms.", millis);
-        final long executionMillis = request.getSession().getClient().getLastExecutionMillis();
+        final long executionMillis = request.getSession().getLastExecutionMillis();
         Validate.inclusiveBetween(0L, millis, executionMillis, "[FAILED] Assertion '%1Ss' is FALSE. Was %2Ss ms.", assertionText, executionMillis);
-        log.info(String.format("->[TRUE] %s", assertionText));
+        if (AlexaTrace.isEnabled(log, request.getSession())) {
+            log.info(String.format("->[TRUE] %s", assertionText));
+        }
         return this;
     }
 
@@ -115,6 +245,16 @@ public class AlexaResponse {
         return validate(is(jsonPathExpression), "JSON path expression " + jsonPathExpression);
     }
 
+    /**
+     * Validates a compiled assertion
+     * throws an IllegalArgumentException in the expression does not return an element
+     * @param assertion the compiled assertion
+     * @return this response
+     */
+    public AlexaResponse assertThat(final AlexaAssertion assertion) {
+        return validate(is(assertion), "JSON path expression " + assertion.expression);
+    }
+
     public AlexaResponse assertTrue(final String jsonPathExpression) {
         return assertThat(jsonPathExpression + " == true");
     }
@@ -146,7 +286,7 @@ public class AlexaResponse {
      * @return True, if predicate is true
      */
     public boolean is(final Predicate<SpeechletResponseEnvelope> responseEnvelope) {
-        return responseEnvelope.test(envelope);
+        return responseEnvelope.test(getResponseEnvelope());
     }
 
     /**
@@ -154,18 +294,24 @@ public class AlexaResponse {
      * @param jsonPathExpression a json-path expression
      * @return True, if expression returns an element
      */
-    public boolean is(String jsonPathExpression) {
-        final String conditionalText = String.format("%1$s is TRUE.", jsonPathExpression);
-        // turn simplified into valid JSONPath expression
-        if (!jsonPathExpression.startsWith("?(@.")) {
-            jsonPathExpression = "?(@." + jsonPathExpression + ")";
-        }
-        // wrap validation expression
-        final String jsonPath = "$.response[" + jsonPathExpression + "]";
-        // wrap response payload
-        final Object o = JsonPath.using(config).parse("{ \"response\" : [ " + responsePayload + " ]}").read(jsonPath);
+    public boolean is(final String jsonPathExpression) {
+        // turn simplified into valid JSONPath expression, compiled once per expression
+        return is(conditions.get(jsonPathExpression), jsonPathExpression);
+    }
+
+    /**
+     * Validates a compiled assertion
+     * @param assertion the compiled assertion
+     * @return True, if expression returns an element
+     */
+    public boolean is(final AlexaAssertion assertion) {
+        return is(assertion.jsonPath, assertion.expression);
+    }
+
+    private boolean is(final JsonPath jsonPath, final String jsonPathExpression) {
+        final List<?> o = jsonPath.read(getWrappedResponseDocument(), config);
         // validate expression
-        return result(o != null && o instanceof JSONArray && !((JSONArray)o).isEmpty(), conditionalText);
+        return result(o != null && !o.isEmpty(), jsonPathExpression);
     }
 
     /**
@@ -254,13 +400,19 @@ public class AlexaResponse {
     }
 
     private AlexaResponse validate(final boolean assertionResult, final String assertionText) {
+        AlexaMetrics.getInstance().increment(assertionResult ? AlexaMetrics.ASSERTIONS_PASSED : AlexaMetrics.ASSERTIONS_FAILED);
+        final AlexaClient client = request.getSession().getClient();
+        if (!client.getReporters().isEmpty()) {
+            client.report(AlexaReportEvent.assertion(this, assertionText, assertionResult));
+        }
         Validate.isTrue(assertionResult, "[FAILED] Assertion '%1$s' is FALSE.", assertionText);
         return this;
     }
 
-    private boolean result(final boolean conditionalResult, final String conditionalText) {
-        final String result = conditionalResult ? "TRUE" : "FALSE";
-        log.info(String.format("->[%1$s] %2$s", result, conditionalText));
+    private boolean result(final boolean conditionalResult, final String jsonPathExpression) {
+        if (AlexaTrace.isEnabled(log, request.getSession())) {
+            log.info(String.format("->[%1$s] %2$s is TRUE.", conditionalResult ? "TRUE" : "FALSE", jsonPathExpression));
+        }
         return conditionalResult;
     }
 }
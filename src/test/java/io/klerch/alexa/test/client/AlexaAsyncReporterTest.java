@@ -0,0 +1,154 @@
+package io.klerch.alexa.test.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AlexaAsyncReporterTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static class Reporter extends AlexaAsyncReporter {
+        private final List<AlexaReportEvent> events = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch writable;
+        private volatile boolean finished;
+
+        private Reporter(final int queueSize, final boolean dropWhenFull, final CountDownLatch writable) {
+            super("test", queueSize, dropWhenFull);
+            this.writable = writable;
+        }
+
+        @Override
+        protected void write(final AlexaReportEvent event) {
+            try {
+                writable.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+        }
+
+        @Override
+        protected void flush() {
+        }
+
+        @Override
+        protected void finish() {
+            finished = true;
+        }
+    }
+
+    private static AlexaReportEvent event(final String sessionId) {
+        return event(sessionId, true);
+    }
+
+    private static AlexaReportEvent event(final String sessionId, final boolean passed) {
+        return new AlexaReportEvent(AlexaReportEvent.Type.REQUEST, sessionId, "IntentRequest", 0, 0, null, null, null, null, passed);
+    }
+
+    @Test
+    public void dropsAndCountsEventsWhenFull() {
+        final CountDownLatch writable = new CountDownLatch(1);
+        final Reporter reporter = new Reporter(2, true, writable);
+        for (int i = 0; i < 10; i++) {
+            reporter.report(event("session" + i));
+        }
+        writable.countDown();
+        reporter.close();
+
+        assertTrue(reporter.finished);
+        assertEquals(10, reporter.getWritten() + reporter.getDropped());
+        assertTrue(reporter.getDropped() >= 7);
+    }
+
+    @Test(timeout = 10000)
+    public void neverDropsFailedEvents() throws Exception {
+        final CountDownLatch writable = new CountDownLatch(1);
+        final Reporter reporter = new Reporter(2, true, writable);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> reporting = executor.submit(() -> {
+                for (int i = 0; i < 10; i++) {
+                    reporter.report(event("session" + i, i % 2 == 0));
+                }
+            });
+            // failed events wait for the writer rather than being dropped
+            Thread.sleep(50);
+            writable.countDown();
+            reporting.get();
+            reporter.close();
+
+            assertEquals(10, reporter.getWritten() + reporter.getDropped());
+            assertEquals(5, reporter.events.stream().filter(e -> !e.isPassed()).count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void writesEveryEventReportedBeforeClose() throws Exception {
+        final Reporter reporter = new Reporter(4, false, new CountDownLatch(0));
+        final Set<String> reported = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                final int t = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        final String sessionId = t + "-" + i;
+                        reporter.report(event(sessionId));
+                        reported.add(sessionId);
+                    }
+                }));
+            }
+            // close while events are still being reported, none of the threads may be left waiting
+            Thread.sleep(5);
+            final Set<String> reportedBeforeClose = ConcurrentHashMap.newKeySet();
+            reportedBeforeClose.addAll(reported);
+            reporter.close();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+
+            final Set<String> written = ConcurrentHashMap.newKeySet();
+            reporter.events.forEach(e -> written.add(e.getSessionId()));
+            assertTrue(reporter.finished);
+            assertEquals(0, reporter.getDropped());
+            assertEquals(reporter.getWritten(), reporter.events.size());
+            assertTrue(written.containsAll(reportedBeforeClose));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void junitReportCountsDroppedEvents() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("results.xml");
+        final AlexaJUnitReporter reporter = AlexaJUnitReporter.create(file).build();
+        reporter.report(event("session1"));
+        reporter.report(event("session2", false));
+        reporter.close();
+
+        final String xml = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(xml, xml.contains("tests=\"2\" failures=\"0\" errors=\"1\""));
+        assertTrue(xml, xml.contains("<property name=\"dropped\" value=\"0\"/>"));
+        assertTrue(xml, xml.trim().endsWith("</testsuite>"));
+    }
+}
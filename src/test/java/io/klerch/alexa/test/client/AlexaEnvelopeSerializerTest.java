@@ -0,0 +1,96 @@
+package io.klerch.alexa.test.client;
+
+import com.amazon.speech.json.SpeechletRequestModule;
+import com.amazon.speech.speechlet.interfaces.display.DisplayInterface;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlexaEnvelopeSerializerTest {
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .enable(SerializationFeature.WRITE_NULL_MAP_VALUES)
+            .registerModule(new SpeechletRequestModule());
+
+    // pairs of the envelope as written by the client and as written from a SpeechletRequestEnvelope
+    private final List<String[]> envelopes = Collections.synchronizedList(new ArrayList<>());
+
+    private AlexaClient client(final String sessionAttributes) {
+        final String payload = "{\"version\":\"1.0\",\"sessionAttributes\":" + sessionAttributes +
+                ",\"response\":{\"shouldEndSession\":false}}";
+        return AlexaClient.create((request, envelope) -> {
+            try {
+                envelopes.add(new String[] { withoutRequestId(envelope), withoutRequestId(mapper.writeValueAsString(request.getSession().envelope(request))) });
+            } catch (final JsonProcessingException e) {
+                throw new RuntimeException(e);
+            }
+            return request.expectsResponse() ? Optional.of(new AlexaResponse(request, envelope, payload)) : Optional.empty();
+        })
+                .withApplicationId("amzn1.ask.skill.test")
+                .withUserId("amzn1.ask.account.test")
+                .withDeviceId("amzn1.ask.device.test")
+                .withSupportedInterface(DisplayInterface.builder().build())
+                .build();
+    }
+
+    // every speechlet request is created with a request id and timestamp of its own
+    private static String withoutRequestId(final String envelope) {
+        return envelope.replaceAll("\"requestId\":\"[^\"]*\",\"timestamp\":\"[^\"]*\"", "");
+    }
+
+    @Test
+    public void writesTheSameAsTheEnvelope() {
+        final AlexaSession session = client("{\"name\":\"J\\u00f6hn \\\"Q\\\"\",\"nested\":{\"list\":[1,null,true]},\"none\":null}").startSession();
+        session.launch();
+        session.intent("GuessIntent", "number", 5);
+        session.intent("AMAZON.StopIntent");
+        session.endSession();
+
+        assertEquals(5, envelopes.size());
+        assertTrue(envelopes.get(0)[0].contains("\"new\":true"));
+        assertFalse(envelopes.get(0)[0].contains("\"attributes\""));
+        assertTrue(envelopes.get(2)[0].contains("\"nested\":{\"list\":[1,null,true]}"));
+        envelopes.forEach(pair -> assertEquals(pair[1], pair[0]));
+    }
+
+    @Test
+    public void reusesBuffersAcrossThreads() throws Exception {
+        final AlexaClient client = client("{\"large\":\"" + StringUtils.repeat('x', 512 * 1024) + "\"}");
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    final AlexaSession session = client.startSession();
+                    session.intent("FirstIntent");
+                    // the session now carries the large attribute, the buffer must not be retained afterwards
+                    session.intent("SecondIntent");
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(48, envelopes.size());
+        assertFalse(envelopes.get(0)[0].isEmpty());
+        envelopes.forEach(pair -> assertEquals(pair[1], pair[0]));
+    }
+}
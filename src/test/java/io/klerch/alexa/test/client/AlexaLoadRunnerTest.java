@@ -0,0 +1,64 @@
+package io.klerch.alexa.test.client;
+
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AlexaLoadRunnerTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void countsFailedSessions() {
+        final AlexaClient client = AlexaClient.create((request, payload) -> request.expectsResponse() ?
+                Optional.of(new AlexaResponse(request, payload, "{\"version\":\"1.0\",\"response\":{\"shouldEndSession\":true}}")) : Optional.empty()).build();
+        final AtomicInteger sessions = new AtomicInteger();
+        final AlexaLoadRunner runner = client.startLoad(AlexaLoadProfile.constant(100, 200).withQuiet(true), session -> {
+            session.launch();
+            if (sessions.incrementAndGet() % 2 == 0) {
+                session.launch().assertThat("response.shouldEndSession == false");
+            }
+        });
+
+        // every second session fails
+        assertEquals(sessions.get(), runner.getSessionsStarted());
+        assertEquals(runner.getSessionsStarted() / 2, runner.getSessionsFailed());
+        assertEquals(runner.getSessionsStarted(), runner.getSessionsSucceeded() + runner.getSessionsFailed());
+        assertFalse(runner.isPassed());
+        assertTrue(runner.getSummary().contains(runner.getSessionsFailed() + " failed"));
+    }
+
+    @Test
+    public void scriptFailsIfSessionsFailed() throws Exception {
+        // nothing was recorded, so every session fails
+        final Path recording = folder.newFile("recording.jsonl").toPath();
+        final String script = "configuration:\n" +
+                "  endpoint:\n" +
+                "    type: Replay\n" +
+                "    file: " + recording + "\n" +
+                "  load:\n" +
+                "    rate: 50\n" +
+                "    duration: 0.1\n" +
+                "    quiet: true\n" +
+                "Launch:\n" +
+                "  - response.shouldEndSession == false\n";
+        try {
+            AlexaClient.create(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8))).build().startScript();
+            fail("Expected the load run to fail.");
+        } catch (final RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("[FAILED] load run"));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.klerch.alexa.test.client;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class AlexaMetricsTest {
+    @Test
+    public void countsAndResets() {
+        final AlexaMetrics metrics = new AlexaMetrics();
+        metrics.increment(AlexaMetrics.REQUESTS);
+        metrics.add(AlexaMetrics.REQUESTS, 2);
+        metrics.increment(AlexaMetrics.SESSIONS_IN_FLIGHT);
+        metrics.record("requests.LaunchRequest", 1_000_000);
+        assertEquals(3, metrics.getCount(AlexaMetrics.REQUESTS));
+        assertEquals(1, metrics.getCount("requests.LaunchRequest"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(AlexaMetrics.REQUESTS));
+        assertEquals(0, metrics.getCount("requests.LaunchRequest"));
+        assertEquals(1, metrics.getCount(AlexaMetrics.SESSIONS_IN_FLIGHT));
+    }
+
+    @Test
+    public void acceptsTheSameConfigurationTwice() {
+        final AlexaMetrics metrics = new AlexaMetrics();
+        metrics.configure(yMetrics("false"));
+        metrics.configure(yMetrics("false"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsConflictingConfiguration() {
+        final AlexaMetrics metrics = new AlexaMetrics();
+        metrics.configure(yMetrics("false"));
+        metrics.configure(yMetrics("true"));
+    }
+
+    private static HashMap<Object, Object> yMetrics(final String jmx) {
+        final HashMap<Object, Object> yMetrics = new HashMap<>();
+        yMetrics.put("jmx", jmx);
+        return yMetrics;
+    }
+}
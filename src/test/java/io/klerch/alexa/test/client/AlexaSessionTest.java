@@ -0,0 +1,93 @@
+package io.klerch.alexa.test.client;
+
+import com.amazon.speech.speechlet.IntentRequest;
+import io.klerch.alexa.test.request.AlexaIntentRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AlexaSessionTest {
+    private AlexaClient client;
+
+    @Before
+    public void createClient() {
+        // the skill remembers the last intent and the attributes it received in the session
+        client = AlexaClient.create((request, payload) -> {
+            if (!(request instanceof AlexaIntentRequest)) {
+                return Optional.empty();
+            }
+            final String intentName = ((IntentRequest)request.getSpeechletRequest()).getIntent().getName();
+            final String previous = String.valueOf(request.getSession().getSessionAttributes().get("intent"));
+            return Optional.of(new AlexaResponse(request, payload, "{\"version\":\"1.0\",\"sessionAttributes\":{\"intent\":\"" + intentName +
+                    "\",\"previous\":\"" + previous + "\"},\"response\":{\"shouldEndSession\":false}}"));
+        }).build();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void attributesAreNotChangedInPlace() {
+        final AlexaSession session = client.startSession();
+        session.intent("FirstIntent");
+        session.getSessionAttributes().put("intent", "OtherIntent");
+    }
+
+    @Test
+    public void attributesAreReplacedWithEachResponse() {
+        final AlexaSession session = client.startSession();
+        session.intent("FirstIntent");
+        final Map<String, Object> first = session.getSessionAttributes();
+        session.intent("SecondIntent");
+
+        assertEquals("FirstIntent", first.get("intent"));
+        assertEquals("SecondIntent", session.getSessionAttributes().get("intent"));
+        assertEquals("FirstIntent", session.getSessionAttributes().get("previous"));
+    }
+
+    @Test
+    public void forksShareAttributesUntilTheyGetAResponse() {
+        final AlexaSession session = client.startSession();
+        session.intent("FirstIntent");
+        final AlexaSession fork = session.fork();
+
+        assertEquals(session.getSessionId(), fork.getSessionId());
+        assertSame(session.getSessionAttributes(), fork.getSessionAttributes());
+
+        fork.intent("ForkedIntent");
+        session.intent("SecondIntent");
+
+        assertEquals("ForkedIntent", fork.getSessionAttributes().get("intent"));
+        assertEquals("FirstIntent", fork.getSessionAttributes().get("previous"));
+        assertEquals("SecondIntent", session.getSessionAttributes().get("intent"));
+        assertEquals("FirstIntent", session.getSessionAttributes().get("previous"));
+    }
+
+    @Test
+    public void snapshotsKeepTheirState() {
+        final AlexaSession session = client.startSession();
+        final AlexaResponse response = session.intent("FirstIntent");
+        final AlexaSessionSnapshot snapshot = session.snapshot();
+        session.intent("SecondIntent");
+
+        assertEquals("FirstIntent", snapshot.getAttributes().get("intent"));
+        assertSame(response, snapshot.getLastResponse());
+
+        // every fork of the snapshot starts over from the same state
+        for (final String intentName : new String[] { "LeftIntent", "RightIntent" }) {
+            final AlexaSession fork = snapshot.fork();
+            assertEquals("FirstIntent", fork.getSessionAttributes().get("intent"));
+            fork.intent(intentName);
+            assertEquals(intentName, fork.getSessionAttributes().get("intent"));
+            assertEquals("FirstIntent", fork.getSessionAttributes().get("previous"));
+        }
+        assertEquals("FirstIntent", snapshot.getAttributes().get("intent"));
+        assertNotEquals(snapshot.getAttributes(), session.getSessionAttributes());
+        assertTrue(snapshot.fork().getSessionAttributes().containsKey("previous"));
+    }
+}
@@ -0,0 +1,91 @@
+package io.klerch.alexa.test.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AlexaSlotCombinationsTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static AlexaSlotCombinations combinations(final AlexaSlotCombinations.Strategy strategy, final int... valueCounts) {
+        final AlexaSlotCombinations.AlexaSlotCombinationsBuilder builder = AlexaSlotCombinations.create().withStrategy(strategy);
+        for (int slot = 0; slot < valueCounts.length; slot++) {
+            final String slotName = "slot" + slot;
+            builder.withSlotValues(slotName, IntStream.range(0, valueCounts[slot]).mapToObj(value -> slotName + "-" + value).collect(Collectors.toList()));
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void cartesianGeneratesEveryCombinationOnce() {
+        final AlexaSlotCombinations combinations = combinations(AlexaSlotCombinations.Strategy.CARTESIAN, 3, 1, 4, 2);
+        final List<Map<String, Object>> all = combinations.stream().collect(Collectors.toList());
+        assertEquals(24, combinations.getCartesianSize());
+        assertEquals(24, all.size());
+        assertEquals(24, new HashSet<>(all).size());
+    }
+
+    @Test
+    public void pairwiseCoversEveryPairOfValues() {
+        final int[][] configurations = {
+                { 2, 2 }, { 3, 3, 3 }, { 3, 3, 3, 3 }, { 2, 5, 3, 4, 2 }, { 10, 2, 1, 7 }, { 4, 4, 4, 4, 4, 4, 4, 4, 4, 4 }, { 1, 1, 5 }
+        };
+        for (final int[] valueCounts : configurations) {
+            final AlexaSlotCombinations combinations = combinations(AlexaSlotCombinations.Strategy.PAIRWISE, valueCounts);
+            final List<Map<String, Object>> all = combinations.stream().collect(Collectors.toList());
+            final String name = Arrays.toString(valueCounts);
+
+            assertEquals(name, all.size(), new HashSet<>(all).size());
+            assertTrue(name, all.size() <= combinations.getCartesianSize());
+            for (int a = 0; a < valueCounts.length; a++) {
+                for (int b = a + 1; b < valueCounts.length; b++) {
+                    for (int valueA = 0; valueA < valueCounts[a]; valueA++) {
+                        for (int valueB = 0; valueB < valueCounts[b]; valueB++) {
+                            final String expectedA = "slot" + a + "-" + valueA;
+                            final String expectedB = "slot" + b + "-" + valueB;
+                            final String slotA = "slot" + a;
+                            final String slotB = "slot" + b;
+                            assertTrue(name + " misses " + expectedA + " with " + expectedB, all.stream()
+                                    .anyMatch(combination -> expectedA.equals(combination.get(slotA)) && expectedB.equals(combination.get(slotB))));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pairwiseTakesFarFewerCombinations() {
+        final AlexaSlotCombinations combinations = combinations(AlexaSlotCombinations.Strategy.PAIRWISE, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4);
+        // 16 combinations are needed at least to cover the pairs of the first two slots
+        final long count = combinations.stream().count();
+        assertTrue(String.valueOf(count), count >= 16 && count <= 40);
+        assertEquals(1_048_576, combinations.getCartesianSize());
+    }
+
+    @Test
+    public void pairwiseOfSingleSlotFallsBackToCartesian() {
+        assertEquals(5, combinations(AlexaSlotCombinations.Strategy.PAIRWISE, 5).stream().count());
+        assertEquals(0, combinations(AlexaSlotCombinations.Strategy.PAIRWISE, 3, 0, 2).stream().count());
+    }
+
+    @Test
+    public void readsDistinctValuesFromCsv() throws Exception {
+        final Path csv = folder.newFile("slots.csv").toPath();
+        Files.write(csv, Arrays.asList("city,\"number\"", "Berlin,1", "Paris,", "Berlin,2", "", "Rome,3"), StandardCharsets.UTF_8);
+        final AlexaSlotCombinations combinations = AlexaSlotCombinations.create().withSlotValues(csv).build();
+        assertEquals(Arrays.asList("city", "number"), combinations.getSlotNames());
+        assertEquals(9, combinations.stream().count());
+    }
+}
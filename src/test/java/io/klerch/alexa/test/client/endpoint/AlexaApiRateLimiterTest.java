@@ -0,0 +1,20 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+
+public class AlexaApiRateLimiterTest {
+    @Test
+    public void sharesRateLimiterOfSkill() {
+        final AlexaApiRateLimiter rateLimiter = AlexaApiRateLimiter.getInstance("skill-shared", AlexaApiRateLimiter.create().withRate(2));
+        assertSame(rateLimiter, AlexaApiRateLimiter.getInstance("skill-shared", AlexaApiRateLimiter.create().withRate(2)));
+        assertSame(rateLimiter, AlexaApiRateLimiter.getInstance("skill-shared"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rejectsConflictingConfiguration() {
+        AlexaApiRateLimiter.getInstance("skill-conflict", AlexaApiRateLimiter.create().withRate(2));
+        AlexaApiRateLimiter.getInstance("skill-conflict", AlexaApiRateLimiter.create().withRate(3));
+    }
+}
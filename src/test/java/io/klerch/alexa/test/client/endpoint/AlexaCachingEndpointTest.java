@@ -0,0 +1,151 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import com.amazon.speech.speechlet.Session;
+import io.klerch.alexa.test.client.AlexaClient;
+import io.klerch.alexa.test.client.AlexaSession;
+import io.klerch.alexa.test.request.AlexaRequest;
+import io.klerch.alexa.test.request.AlexaUtteranceRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AlexaCachingEndpointTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    // the skill repeats what was said
+    private final AlexaEndpoint skill = (request, payload) -> {
+        calls.incrementAndGet();
+        final String speech = request instanceof AlexaUtteranceRequest ? payload : request.getClass().getSimpleName();
+        return request.expectsResponse() ? Optional.of(new AlexaResponse(request, payload,
+                "{\"version\":\"1.0\",\"response\":{\"outputSpeech\":{\"type\":\"PlainText\",\"text\":\"" + speech + "\"},\"shouldEndSession\":false}}")) : Optional.empty();
+    };
+
+    private static AlexaSession session(final AlexaEndpoint endpoint, final String locale) {
+        return AlexaClient.create(endpoint).withLocale(locale).build().startSession();
+    }
+
+    private static Optional<String> say(final AlexaCachingEndpoint cache, final AlexaSession session, final String utterance) {
+        return cache.fire(new AlexaUtteranceRequest(session), utterance).flatMap(AlexaResponse::getOutputSpeech);
+    }
+
+    @Test
+    public void cachesUtterancesByText() {
+        final AlexaCachingEndpoint cache = AlexaCachingEndpoint.create(skill).build();
+        final AlexaSession session = session(cache, "en-US");
+        calls.set(0);
+        assertEquals(Optional.of("hello"), say(cache, session, "hello"));
+        assertEquals(Optional.of("hello"), say(cache, session, "hello"));
+        assertEquals(Optional.of("goodbye"), say(cache, session, "goodbye"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void coalescesConcurrentIdenticalRequests() {
+        final CompletableFuture<Void> skillResponds = new CompletableFuture<>();
+        final AlexaEndpoint slowSkill = new AlexaEndpoint() {
+            @Override
+            public Optional<AlexaResponse> fire(final AlexaRequest request, final String payload) {
+                return skill.fire(request, payload);
+            }
+
+            @Override
+            public CompletableFuture<Optional<AlexaResponse>> fireAsync(final AlexaRequest request, final String payload) {
+                return skillResponds.thenApply(v -> fire(request, payload));
+            }
+        };
+        final AlexaCachingEndpoint cache = AlexaCachingEndpoint.create(slowSkill).build();
+        final AlexaSession session = session(skill, "en-US");
+        calls.set(0);
+
+        final CompletableFuture<Optional<AlexaResponse>> first = cache.fireAsync(new AlexaUtteranceRequest(session), "hello");
+        final CompletableFuture<Optional<AlexaResponse>> second = cache.fireAsync(new AlexaUtteranceRequest(session), "hello");
+        assertFalse(second.isDone());
+        skillResponds.complete(null);
+
+        assertEquals(Optional.of("hello"), first.join().flatMap(AlexaResponse::getOutputSpeech));
+        assertEquals(Optional.of("hello"), second.join().flatMap(AlexaResponse::getOutputSpeech));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getCoalesced());
+        assertEquals(0, cache.getHits());
+
+        // served from the cache once the first response arrived
+        cache.fireAsync(new AlexaUtteranceRequest(session), "hello").join();
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final AlexaCachingEndpoint cache = AlexaCachingEndpoint.create(skill).withMaxSize(2).build();
+        final AlexaSession session = session(skill, "en-US");
+        calls.set(0);
+
+        say(cache, session, "one");
+        say(cache, session, "two");
+        say(cache, session, "one");
+        // evicts two as one was used more recently
+        say(cache, session, "three");
+        say(cache, session, "one");
+        assertEquals(3, calls.get());
+
+        say(cache, session, "two");
+        assertEquals(4, calls.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void expiresAfterTimeToLive() throws InterruptedException {
+        final AlexaCachingEndpoint cache = AlexaCachingEndpoint.create(skill).withTtl(100, TimeUnit.MILLISECONDS).build();
+        final AlexaSession session = session(skill, "en-US");
+        calls.set(0);
+
+        say(cache, session, "hello");
+        say(cache, session, "hello");
+        assertEquals(1, calls.get());
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(Optional.of("hello"), say(cache, session, "hello"));
+        assertEquals(2, calls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void saysThroughDecoratedReplay() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("recording.jsonl");
+        final AlexaRecordingEndpoint recorder = AlexaRecordingEndpoint.create(skill, file).build();
+        recorder.fire(new AlexaUtteranceRequest(session(skill, "en-US")), "hello");
+        recorder.close();
+
+        final AlexaEndpoint replay = AlexaCachingEndpoint.create(AlexaResilientEndpoint.create(AlexaReplayEndpoint.create(file).build()).build()).build();
+        final AlexaClient client = AlexaClient.create(replay).withLocale("en-US").build();
+        // joins a session without a recorded session start
+        final AlexaSession session = new AlexaSession(client, Session.builder().withSessionId(AlexaSession.generateSessionId())
+                .withApplication(client.getApplication()).withUser(client.getUser()).withAttributes(new HashMap<>()).build());
+        assertEquals(Optional.of("hello"), session.say("hello").getOutputSpeech());
+        assertEquals(Optional.of("hello"), session.sayAsync("hello").join().getOutputSpeech());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void saysOnlyThroughEndpointsSupportingUtterances() {
+        session(AlexaCachingEndpoint.create(skill).build(), "en-US").say("hello");
+    }
+}
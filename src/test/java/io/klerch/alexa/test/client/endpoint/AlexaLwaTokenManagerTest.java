@@ -0,0 +1,64 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AlexaLwaTokenManagerTest {
+    // Login with Amazon hands out tokens expiring after a second, so they get refreshed after half a second
+    private final AlexaHttpTransport lwa = new AlexaHttpTransport(AlexaHttpTransport.create()) {
+        @Override
+        public HttpResponse execute(final HttpUriRequest request) throws IOException {
+            final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+            response.setEntity(new StringEntity("{\"access_token\":\"token\",\"expires_in\":1}"));
+            return response;
+        }
+    };
+
+    @After
+    public void closeTransport() throws IOException {
+        lwa.close();
+    }
+
+    @Test
+    public void sharesInstanceUntilLastRelease() {
+        final AlexaLwaTokenManager first = AlexaLwaTokenManager.getInstance("id", "secret", "refresh", lwa);
+        final AlexaLwaTokenManager second = AlexaLwaTokenManager.getInstance("id", "secret", "refresh", lwa);
+        assertSame(first, second);
+
+        // a third user comes along while the second one still uses it
+        first.release();
+        assertSame(second, AlexaLwaTokenManager.getInstance("id", "secret", "refresh", lwa));
+        second.release();
+        second.release();
+
+        final AlexaLwaTokenManager third = AlexaLwaTokenManager.getInstance("id", "secret", "refresh", lwa);
+        assertNotSame(first, third);
+        third.release();
+    }
+
+    @Test
+    public void stopsBackgroundRefreshOnRelease() throws InterruptedException {
+        final AlexaLwaTokenManager tokenManager = AlexaLwaTokenManager.getInstance("id", "secret", "refresh", lwa);
+        assertEquals("token", tokenManager.getAccessToken());
+        TimeUnit.MILLISECONDS.sleep(1200);
+        assertTrue(tokenManager.getRefreshCount() > 1);
+
+        tokenManager.release();
+        final long refreshCount = tokenManager.getRefreshCount();
+        TimeUnit.MILLISECONDS.sleep(1200);
+        assertEquals(refreshCount, tokenManager.getRefreshCount());
+    }
+}
@@ -0,0 +1,79 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import io.klerch.alexa.test.client.AlexaClient;
+import io.klerch.alexa.test.client.AlexaSession;
+import io.klerch.alexa.test.request.AlexaUtteranceRequest;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AlexaRecordingEndpointTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final AlexaEndpoint skill = (request, payload) -> {
+        calls.incrementAndGet();
+        final String speech = request instanceof AlexaUtteranceRequest ? payload : request.getClass().getSimpleName();
+        return request.expectsResponse() ? Optional.of(new AlexaResponse(request, payload,
+                "{\"version\":\"1.0\",\"response\":{\"outputSpeech\":{\"type\":\"PlainText\",\"text\":\"" + speech + "\"},\"shouldEndSession\":false}}")) : Optional.empty();
+    };
+
+    private static AlexaSession session(final AlexaEndpoint endpoint, final String locale) {
+        return AlexaClient.create(endpoint).withLocale(locale).build().startSession();
+    }
+
+    @Test
+    public void recordsAndReplaysUtterances() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("recording.jsonl");
+        final AlexaRecordingEndpoint recorder = AlexaRecordingEndpoint.create(skill, file).build();
+        final AlexaSession session = session(recorder, "de-DE");
+        recorder.fire(new AlexaUtteranceRequest(session), "hallo welt");
+        session.intent("HelpIntent");
+        recorder.close();
+        // no longer recorded once closed
+        recorder.fire(new AlexaUtteranceRequest(session), "hallo welt");
+
+        assertEquals(3, Files.readAllLines(file).size());
+        assertTrue(Files.readAllLines(file).get(1).contains("{\"utterance\":\"hallo welt\",\"locale\":\"de-DE\"}"));
+
+        final AlexaReplayEndpoint replay = AlexaReplayEndpoint.create(file).build();
+        final Optional<AlexaResponse> response = replay.fire(new AlexaUtteranceRequest(session(skill, "de-DE")), "hallo welt");
+        assertEquals(Optional.of("hallo welt"), response.flatMap(AlexaResponse::getOutputSpeech));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void replaysUtterancesOfTheRecordedLocaleOnly() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("recording.jsonl");
+        final AlexaRecordingEndpoint recorder = AlexaRecordingEndpoint.create(skill, file).build();
+        recorder.fire(new AlexaUtteranceRequest(session(recorder, "de-DE")), "hallo welt");
+        recorder.close();
+
+        final AlexaReplayEndpoint replay = AlexaReplayEndpoint.create(file).build();
+        replay.fire(new AlexaUtteranceRequest(session(skill, "en-US")), "hallo welt");
+    }
+
+    @Test
+    public void closedWhenScriptFinished() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("recording.jsonl");
+        final AlexaRecordingEndpoint recorder = AlexaRecordingEndpoint.create(skill, file).build();
+        final AlexaClient client = AlexaClient.create(AlexaCachingEndpoint.create(recorder).build()).build();
+        try {
+            // there is no script to run
+            client.startScript();
+        } catch (final RuntimeException e) {
+            recorder.fire(new AlexaUtteranceRequest(client.startSession()), "hello");
+        }
+        assertEquals(0, Files.readAllLines(file).size());
+    }
+}
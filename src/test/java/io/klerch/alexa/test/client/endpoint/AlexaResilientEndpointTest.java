@@ -0,0 +1,48 @@
+package io.klerch.alexa.test.client.endpoint;
+
+import io.klerch.alexa.test.client.AlexaClient;
+import io.klerch.alexa.test.response.AlexaResponse;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AlexaResilientEndpointTest {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    // the skill is unavailable for every other call
+    private final AlexaEndpoint skill = (request, payload) -> {
+        if (calls.incrementAndGet() % 2 == 1) {
+            throw new AlexaEndpointException(503, "Service unavailable");
+        }
+        return request.expectsResponse() ? Optional.of(new AlexaResponse(request, payload,
+                "{\"version\":\"1.0\",\"response\":{\"shouldEndSession\":false}}")) : Optional.empty();
+    };
+
+    private static AlexaClient client(final AlexaEndpoint endpoint) {
+        return AlexaClient.create(endpoint).build();
+    }
+
+    @Test
+    public void retriesUnavailableSkill() {
+        final AlexaResilientEndpoint endpoint = AlexaResilientEndpoint.create(skill).withBaseDelay(0).withMaxDelay(0).build();
+        client(endpoint).startSession().launch();
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void noReserveLeavesNoBudgetForRetries() {
+        final AlexaResilientEndpoint endpoint = AlexaResilientEndpoint.create(skill).withBaseDelay(0).withMaxDelay(0)
+                .withRetryReserve(0).withRetryRatio(1).build();
+        try {
+            client(endpoint).startSession();
+            fail("Expected the session start to fail without retry.");
+        } catch (final AlexaEndpointException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+        assertEquals(1, calls.get());
+    }
+}
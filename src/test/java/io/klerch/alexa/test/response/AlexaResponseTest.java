@@ -0,0 +1,135 @@
+package io.klerch.alexa.test.response;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import io.klerch.alexa.test.client.AlexaClient;
+import net.minidev.json.JSONArray;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlexaResponseTest {
+    private static final String RESPONSE = "{\"version\":\"1.0\"," +
+            "\"sessionAttributes\":{\"colors\":[\"red\",\"green\"],\"count\":3,\"name\":\"John\",\"price\":1.5}," +
+            "\"response\":{\"outputSpeech\":{\"type\":\"SSML\",\"ssml\":\"<speak>Hello John</speak>\"}," +
+            "\"directives\":[{\"type\":\"Dialog.Delegate\"}],\"shouldEndSession\":false}}";
+
+    // the way assertions were evaluated before responses were parsed only once
+    private static final Configuration PLAIN_CONFIG = Configuration.builder()
+            .options(Option.ALWAYS_RETURN_LIST)
+            .options(Option.DEFAULT_PATH_LEAF_TO_NULL)
+            .options(Option.SUPPRESS_EXCEPTIONS)
+            .build();
+
+    private static final String[] TRUE_ASSERTIONS = {
+            "response.shouldEndSession == false",
+            "response.outputSpeech.ssml",
+            "response.outputSpeech.ssml =~ /.*hello john.*/i",
+            "response.directives size 1",
+            "sessionAttributes.colors contains 'red'",
+            "sessionAttributes.colors size 2",
+            "sessionAttributes.count >= 3",
+            "sessionAttributes.count == 3",
+            "sessionAttributes.price < 2",
+            "sessionAttributes.name == 'John'",
+            "sessionAttributes.name in ['Jane', 'John']",
+            "sessionAttributes.name nin ['Jane']",
+            "sessionAttributes.colors empty false"
+    };
+
+    private static final String[] FALSE_ASSERTIONS = {
+            "response.shouldEndSession == true",
+            "response.card",
+            "response.outputSpeech.ssml =~ /.*goodbye.*/i",
+            "response.directives size 2",
+            "sessionAttributes.colors contains 'blue'",
+            "sessionAttributes.colors size 3",
+            "sessionAttributes.count > 3",
+            "sessionAttributes.name == 'Jane'",
+            "sessionAttributes.name in ['Jane']",
+            "sessionAttributes.colors empty true"
+    };
+
+    private AlexaResponse response;
+
+    @Before
+    public void fireRequest() {
+        final AlexaClient client = AlexaClient.create((request, payload) -> request.expectsResponse() ?
+                Optional.of(new AlexaResponse(request, payload, RESPONSE)) : Optional.empty()).build();
+        response = client.startSession().intent("TestIntent");
+    }
+
+    @Test
+    public void assertionsEvaluateAsOnThePlainPayload() {
+        for (final String assertion : TRUE_ASSERTIONS) {
+            assertTrue(assertion, evaluatePlain(assertion));
+            assertTrue(assertion, response.is(assertion));
+            assertTrue(assertion, response.is(AlexaAssertion.create(assertion)));
+        }
+        for (final String assertion : FALSE_ASSERTIONS) {
+            assertFalse(assertion, evaluatePlain(assertion));
+            assertFalse(assertion, response.is(assertion));
+            assertFalse(assertion, response.is(AlexaAssertion.create(assertion)));
+        }
+    }
+
+    @Test
+    public void assertionsEvaluateRepeatedlyOnTheCachedDocument() {
+        final AlexaAssertion assertion = AlexaAssertion.create("sessionAttributes.colors contains 'green'");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(response.is(assertion));
+        }
+    }
+
+    @Test
+    public void getReturnsValuesAsText() {
+        assertEquals(Optional.of("John"), response.get("$.sessionAttributes.name"));
+        assertEquals(Optional.of("3"), response.get("$.sessionAttributes.count"));
+        assertEquals(Optional.of("false"), response.get("$.response.shouldEndSession"));
+        assertEquals(Optional.of("[\"red\",\"green\"]"), response.get("$.sessionAttributes.colors"));
+    }
+
+    @Test
+    public void getResolvesReferences() {
+        assertEquals(Optional.of("red"), response.get(AlexaReference.create(".sessionAttributes.colors[0]")));
+    }
+
+    @Test
+    public void getFallsBackToTheRequest() {
+        assertEquals(Optional.of("TestIntent"), response.get("$.request.intent.name"));
+        assertEquals(Optional.empty(), response.get("$.sessionAttributes.unknown"));
+    }
+
+    @Test
+    public void readsWithoutJsonPath() {
+        assertEquals(Optional.of(false), response.getShouldEndSession());
+        assertEquals(Optional.of("<speak>Hello John</speak>"), response.getOutputSpeech());
+        assertEquals("John", response.getSessionAttributes().get("name"));
+    }
+
+    @Test
+    public void buildsEnvelopeFromTheDocument() {
+        assertFalse(response.getResponseEnvelope().getResponse().getShouldEndSession());
+        assertEquals("John", response.getResponseEnvelope().getSessionAttributes().get("name"));
+    }
+
+    @Test
+    public void readsUtf8Payload() {
+        final byte[] payload = "{\"response\":{\"outputSpeech\":{\"type\":\"PlainText\",\"text\":\"Grüße\"}}}".getBytes(StandardCharsets.UTF_8);
+        final AlexaResponse utf8Response = new AlexaResponse(null, "{}", payload);
+        assertEquals(Optional.of("Grüße"), utf8Response.getOutputSpeech());
+        assertEquals(Optional.of(true), utf8Response.getShouldEndSession());
+    }
+
+    private static boolean evaluatePlain(final String assertion) {
+        final Object o = JsonPath.using(PLAIN_CONFIG).parse("{ \"response\" : [ " + RESPONSE + " ]}").read("$.response[?(@." + assertion + ")]");
+        return o instanceof JSONArray && !((JSONArray)o).isEmpty();
+    }
+}